@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.chatdumper;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import net.runelite.client.plugins.dumputils.DumpOutputStream;
+import net.runelite.client.plugins.dumputils.OutputCompression;
+
+/*
+ * Streams chat messages to newline-delimited JSON files, one message per line,
+ * or to columnar segments, and starts a new file once the current one has
+ * maxBytes written to it or is maxMillis old. Nothing is kept in memory beyond
+ * the writer's buffers, and with gzip every sync ends a gzip member, so a file
+ * is readable up to the last sync even if the client crashes. Segments are
+ * never gzipped as a whole, so they can still be scanned column by column;
+ * their columns are deflated instead, and a sync only covers full blocks.
+ */
+class ChatArchive
+{
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    private final File directory;
+    private final ChatArchiveFormat format;
+    private final OutputCompression compression;
+    private final int compressionLevel;
+    private final long maxBytes;
+    private final long maxMillis;
+    private final ArchiveSync sync;
+    private final Gson gson = new GsonBuilder().create();
+
+    private File file;
+    private DumpOutputStream out;
+    private Writer writer;
+    private ChatSegmentWriter segment;
+    private long openedAt;
+    private long lastSync;
+    // Whether anything has been appended since the last sync
+    private boolean dirty;
+
+    ChatArchive(File directory, ChatArchiveFormat format, OutputCompression compression, int compressionLevel, long maxBytes, long maxMillis, ArchiveSync sync)
+    {
+        this.directory = directory;
+        this.format = format;
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+        this.maxBytes = maxBytes;
+        this.maxMillis = maxMillis;
+        this.sync = sync;
+    }
+
+    void append(ChatMessageData message) throws IOException
+    {
+        long now = System.currentTimeMillis();
+        if (out == null || out.getWritten() >= maxBytes || now - openedAt >= maxMillis)
+        {
+            rotate();
+        }
+
+        if (segment != null)
+        {
+            segment.add(message);
+        }
+        else
+        {
+            gson.toJson(message, writer);
+            writer.write('\n');
+        }
+
+        dirty = true;
+        if (sync == ArchiveSync.MESSAGE)
+        {
+            sync(now);
+        }
+        else
+        {
+            tick(now);
+        }
+    }
+
+    /*
+     * Syncs chat that has waited a second under ArchiveSync.SECOND, and closes
+     * a file that has reached maxMillis, so both happen on time even when chat
+     * goes quiet. Call at getDeadline() at the latest.
+     */
+    void tick(long now) throws IOException
+    {
+        if (out == null)
+        {
+            return;
+        }
+        if (now - openedAt >= maxMillis)
+        {
+            close();
+        }
+        else if (dirty && sync == ArchiveSync.SECOND && now - lastSync >= SYNC_INTERVAL_MILLIS)
+        {
+            sync(now);
+        }
+    }
+
+    /*
+     * Returns when tick() next has something to do, Long.MAX_VALUE if nothing is pending
+     */
+    long getDeadline()
+    {
+        if (out == null)
+        {
+            return Long.MAX_VALUE;
+        }
+        long deadline = openedAt + maxMillis;
+        if (dirty && sync == ArchiveSync.SECOND)
+        {
+            deadline = Math.min(deadline, lastSync + SYNC_INTERVAL_MILLIS);
+        }
+        return deadline;
+    }
+
+    private void sync(long now) throws IOException
+    {
+        flush();
+        out.sync();
+        lastSync = now;
+        dirty = false;
+    }
+
+    /*
+     * Closes the current file, the next message starts a new one
+     */
+    void rotate() throws IOException
+    {
+        close();
+
+        directory.mkdirs();
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss-SSS").format(new Date());
+        file = fileName("chat-" + timestamp);
+        for (int i = 1; file.exists(); i++)
+        {
+            file = fileName("chat-" + timestamp + "-" + i);
+        }
+
+        if (format == ChatArchiveFormat.COLUMNAR)
+        {
+            out = new DumpOutputStream(file, OutputCompression.NONE, compressionLevel);
+            segment = new ChatSegmentWriter(out, compression != OutputCompression.NONE, compressionLevel);
+        }
+        else
+        {
+            out = new DumpOutputStream(file, compression, compressionLevel);
+            writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()));
+        }
+        openedAt = System.currentTimeMillis();
+        lastSync = openedAt;
+        dirty = false;
+    }
+
+    void close() throws IOException
+    {
+        if (out == null)
+        {
+            return;
+        }
+
+        try
+        {
+            if (segment != null)
+            {
+                segment.finish();
+            }
+            flush();
+            if (sync != ArchiveSync.NEVER)
+            {
+                out.sync();
+            }
+            out.close();
+            // Compressed segments are checksummed too, the checksum covers the file bytes either way
+            if (compression != OutputCompression.NONE)
+            {
+                DumpOutputStream.writeChecksum(file, out.getChecksum());
+            }
+        }
+        finally
+        {
+            writer = null;
+            segment = null;
+            out = null;
+        }
+    }
+
+    private File fileName(String name)
+    {
+        if (format == ChatArchiveFormat.COLUMNAR)
+        {
+            return new File(directory, name + format.getExtension());
+        }
+        return new File(directory, compression.apply(name + format.getExtension()));
+    }
+
+    private void flush() throws IOException
+    {
+        if (writer != null)
+        {
+            writer.flush();
+        }
+        out.flush();
+    }
+}
@@ -27,6 +27,8 @@ package net.runelite.client.plugins.chatdumper;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.plugins.dumputils.OutputCompression;
 
 @ConfigGroup("chatdumper")
 public interface ChatDumperConfig extends Config
@@ -38,4 +40,62 @@ public interface ChatDumperConfig extends Config
             description = "Save only chat from public channel"
     )
     default boolean saveOnlyPublicChat() { return false; }
+
+    @ConfigItem(
+            position = 2,
+            keyName = "outputCompression",
+            name = "Output compression",
+            description = "Compress saved chat logs while they are written, with a .sha256 checksum"
+    )
+    default OutputCompression outputCompression() { return OutputCompression.NONE; }
+
+    @ConfigItem(
+            position = 3,
+            keyName = "compressionLevel",
+            name = "Compression level",
+            description = "Deflate level, from 1 (fastest) to 9 (smallest)"
+    )
+    default int compressionLevel() { return 6; }
+
+    @ConfigItem(
+            position = 4,
+            keyName = "rotateSizeMb",
+            name = "Rotate size (MB)",
+            description = "Start a new chat archive file after this many megabytes of chat"
+    )
+    @Range(min = 1)
+    default int rotateSizeMb() { return 64; }
+
+    @ConfigItem(
+            position = 5,
+            keyName = "rotateMinutes",
+            name = "Rotate time (minutes)",
+            description = "Start a new chat archive file after this many minutes"
+    )
+    @Range(min = 1)
+    default int rotateMinutes() { return 60; }
+
+    @ConfigItem(
+            position = 6,
+            keyName = "archiveSync",
+            name = "Force to disk",
+            description = "When the chat archive is forced to disk, so a crash loses less chat"
+    )
+    default ArchiveSync archiveSync() { return ArchiveSync.SECOND; }
+
+    @ConfigItem(
+            position = 7,
+            keyName = "overflowPolicy",
+            name = "When behind",
+            description = "What to do with chat when the archive writer falls behind: drop it, block the client until there is room, or queue up to 64k messages on the heap and drop the rest"
+    )
+    default ChatOverflow overflowPolicy() { return ChatOverflow.SPILL; }
+
+    @ConfigItem(
+            position = 8,
+            keyName = "archiveFormat",
+            name = "Archive format",
+            description = "JSON lines, or columnar segments that are much smaller and faster to scan"
+    )
+    default ChatArchiveFormat archiveFormat() { return ChatArchiveFormat.NDJSON; }
 }
@@ -24,21 +24,20 @@
  */
 package net.runelite.client.plugins.chatdumper;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Provides;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.Calendar;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 import javax.inject.Inject;
+import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
-import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.api.events.CommandExecuted;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
@@ -57,11 +56,17 @@ import net.runelite.api.MessageNode;
 
 public class ChatDumperPlugin extends Plugin
 {
-    private final ArrayList<ChatMessageData> messages = new ArrayList<ChatMessageData>();
+    private static final File ARCHIVE_DIRECTORY = new File("chat-archive");
+
+    private ChatWriter chatWriter;
+    private ExecutorService scanExecutor;
 
     @Inject
     private Client client;
 
+    @Inject
+    private ClientThread clientThread;
+
     @Inject
     private ChatDumperConfig config;
 
@@ -75,13 +80,27 @@ public class ChatDumperPlugin extends Plugin
     protected void startUp() throws Exception
     {
         log.debug(">>> Starting up ChatDumper...");
+        ChatArchive archive = new ChatArchive(ARCHIVE_DIRECTORY,
+                config.archiveFormat(),
+                config.outputCompression(),
+                config.compressionLevel(),
+                Math.max(1, config.rotateSizeMb()) * 1024L * 1024L,
+                Math.max(1, config.rotateMinutes()) * 60L * 1000L,
+                config.archiveSync());
+        chatWriter = new ChatWriter(archive, config.overflowPolicy());
+        // Created here, the plugin can be started again after shutDown()
+        scanExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("chat-archive-scan")
+                .setDaemon(true)
+                .build());
     }
 
     @Override
     protected void shutDown() throws Exception
     {
         log.debug(">>> Shutting down ChatDumper...");
-        messages.clear();
+        chatWriter.close();
+        scanExecutor.shutdown();
     }
 
     @Subscribe
@@ -91,9 +110,15 @@ public class ChatDumperPlugin extends Plugin
         {
             case "csave":
             {
-                // When command is found, dump data to JSON and clear array
-                saveChatMessageData();
-                messages.clear();
+                // When command is found, close the archive file and start a new one
+                chatWriter.rotate();
+                break;
+            }
+            case "cstats":
+            {
+                client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Chat archive: " + chatWriter.getStats(), null);
+                // Segments can hold months of chat, count them off the client thread
+                scanExecutor.execute(this::reportSegments);
                 break;
             }
         }
@@ -108,39 +133,47 @@ public class ChatDumperPlugin extends Plugin
         // This is only really included as an example to filter chat types
         if (config.saveOnlyPublicChat())
         {
-            if (messageNode.getType().name() != "PUBLICCHAT")
+            if (messageNode.getType() != ChatMessageType.PUBLICCHAT)
             {
                 return;
             }
         }
         
-        // Create new chat message object, populate and add to array
-        ChatMessageData chatMessageData = new ChatMessageData();
-        chatMessageData.populateChatMessageData(messageNode, client.getWorld());
-        messages.add(chatMessageData);
+        // Copy the message into a ring slot, the writer thread does the archiving
+        chatWriter.submit(messageNode, client.getWorld());
 	}
 
-    private void saveChatMessageData()
+    /*
+     * Counts the messages of each type in the columnar segments of the archive,
+     * reading only the type column
+     */
+    private void reportSegments()
     {
-        // Get timestamp for a unqiue file name
-        String pattern = "yyyy-MM-dd-HH:mm:ss";
-        DateFormat df = new SimpleDateFormat(pattern);
-        Date today = Calendar.getInstance().getTime();
-        String fileOut = df.format(today);
-        fileOut = fileOut + ".json";
-
-        // Create JSON export
-        Gson gson = new GsonBuilder().create();
-        String json = gson.toJson(messages);
+        File[] segments = ARCHIVE_DIRECTORY.listFiles((dir, name) -> name.endsWith(ChatArchiveFormat.COLUMNAR.getExtension()));
+        if (segments == null || segments.length == 0)
+        {
+            return;
+        }
 
-        // Save the JSON file
-        try (FileWriter fw = new FileWriter(fileOut))
+        String message;
+        try
         {
-            fw.write(json);
+            Map<String, Integer> types = new TreeMap<>();
+            long messages = 0;
+            for (File segment : segments)
+            {
+                messages += ChatSegmentReader.scan(segment, EnumSet.of(ChatColumn.TYPE),
+                        chatMessageData -> types.merge(chatMessageData.getType(), 1, Integer::sum));
+            }
+            message = String.format("Chat archive segments: %d messages in %d files, %s", messages, segments.length, types);
         }
         catch (IOException e)
         {
-            e.printStackTrace();
+            log.warn("Failed to scan chat archive segments", e);
+            message = "Failed to scan chat archive segments: " + e.getMessage();
         }
+
+        final String result = message;
+        clientThread.invokeLater(() -> client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", result, null));
     }
 }
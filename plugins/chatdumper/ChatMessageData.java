@@ -24,9 +24,11 @@
  */
 package net.runelite.client.plugins.chatdumper;
 
+import lombok.Getter;
 import lombok.Setter;
 import net.runelite.api.MessageNode;
 
+@Getter
 public class ChatMessageData
 {
     @Setter
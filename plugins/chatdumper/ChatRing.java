@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.chatdumper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+ * Single-producer, single-consumer ring of preallocated ChatMessageData
+ * slots. The client thread claims a slot, copies the message fields into it
+ * and publishes it; the writer thread drains published slots in batches and
+ * hands them back. No locks are taken and nothing is allocated once the ring
+ * is created. The head and tail are only ever increased, a slot is at
+ * position & mask.
+ */
+class ChatRing
+{
+    private final ChatMessageData[] slots;
+    private final int mask;
+
+    // Next position to drain, written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // Next position to publish, written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+
+    /*
+     * capacity must be a power of two
+     */
+    ChatRing(int capacity)
+    {
+        this.slots = new ChatMessageData[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++)
+        {
+            slots[i] = new ChatMessageData();
+        }
+    }
+
+    /*
+     * Returns the next free slot to fill, or null if the ring is full. Producer only.
+     */
+    ChatMessageData claim()
+    {
+        long position = tail.get();
+        if (position - head.get() == slots.length)
+        {
+            return null;
+        }
+        return slots[(int) position & mask];
+    }
+
+    /*
+     * Makes the slot returned by the last claim() visible to the consumer. Producer only.
+     */
+    void publish()
+    {
+        // A full volatile write, so a following read of the consumer's sleeping
+        // flag cannot be reordered before it
+        tail.set(tail.get() + 1);
+    }
+
+    /*
+     * Passes up to max published slots to consumer, in order, and frees them
+     * once it returns. Returns the number drained. Consumer only.
+     */
+    int drain(Consumer<ChatMessageData> consumer, int max)
+    {
+        long position = head.get();
+        int available = (int) Math.min(tail.get() - position, max);
+        for (int i = 0; i < available; i++)
+        {
+            consumer.accept(slots[(int) (position + i) & mask]);
+        }
+        head.lazySet(position + available);
+        return available;
+    }
+
+    boolean isEmpty()
+    {
+        return head.get() == tail.get();
+    }
+}
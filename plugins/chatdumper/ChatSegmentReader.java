@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.chatdumper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/*
+ * Reads chat segments written by ChatSegmentWriter. Only the columns a scan
+ * asks for are read and decoded, the rest are skipped over in the file, so
+ * e.g. counting messages per sender never touches the message text. A
+ * block cut short at the end of the file, left by a crash, is ignored.
+ */
+class ChatSegmentReader
+{
+    private static final int BLOCK_ROWS = ChatSegmentWriter.BLOCK_ROWS;
+
+    private final FileChannel channel;
+    private final Set<ChatColumn> columns;
+    private final ByteBuffer header = ByteBuffer.allocate(8);
+    private ByteBuffer stored = ByteBuffer.allocate(65536);
+    private ByteBuffer raw = ByteBuffer.allocate(65536);
+    private Inflater inflater;
+
+    private final int[] timestamps = new int[BLOCK_ROWS];
+    private final String[] types = new String[BLOCK_ROWS];
+    private final String[] senders = new String[BLOCK_ROWS];
+    private final String[] names = new String[BLOCK_ROWS];
+    private final int[] worlds = new int[BLOCK_ROWS];
+    private final String[] values = new String[BLOCK_ROWS];
+
+    private ChatSegmentReader(FileChannel channel, Set<ChatColumn> columns)
+    {
+        this.channel = channel;
+        this.columns = columns;
+    }
+
+    /*
+     * Passes every message in file to consumer, with only the fields for
+     * columns filled in and the others left at their defaults. The same
+     * ChatMessageData is reused for each message. Returns the number of
+     * messages read.
+     */
+    static long scan(File file, Set<ChatColumn> columns, Consumer<ChatMessageData> consumer) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ChatSegmentReader reader = new ChatSegmentReader(channel, columns);
+            try
+            {
+                return reader.read(file, consumer);
+            }
+            catch (DataFormatException e)
+            {
+                throw new IOException("Corrupt chat segment " + file, e);
+            }
+            finally
+            {
+                if (reader.inflater != null)
+                {
+                    reader.inflater.end();
+                }
+            }
+        }
+    }
+
+    private long read(File file, Consumer<ChatMessageData> consumer) throws IOException, DataFormatException
+    {
+        if (!readFully(header, 6) || header.getInt() != ChatSegmentWriter.MAGIC || header.get() != ChatSegmentWriter.VERSION)
+        {
+            throw new IOException("Not a chat segment " + file);
+        }
+        if ((header.get() & ChatSegmentWriter.FLAG_DEFLATE) != 0)
+        {
+            inflater = new Inflater();
+        }
+
+        ChatMessageData message = new ChatMessageData();
+        long count = 0;
+        while (readFully(header, 4))
+        {
+            int rows = header.getInt();
+            if (rows <= 0 || rows > BLOCK_ROWS)
+            {
+                throw new IOException("Corrupt chat segment " + file);
+            }
+            if (!readBlock(rows))
+            {
+                break;
+            }
+
+            for (int i = 0; i < rows; i++)
+            {
+                if (columns.contains(ChatColumn.TIMESTAMP))
+                {
+                    message.setTimestamp(timestamps[i]);
+                }
+                if (columns.contains(ChatColumn.TYPE))
+                {
+                    message.setType(types[i]);
+                }
+                if (columns.contains(ChatColumn.SENDER))
+                {
+                    message.setSender(senders[i]);
+                }
+                if (columns.contains(ChatColumn.NAME))
+                {
+                    message.setName(names[i]);
+                }
+                if (columns.contains(ChatColumn.WORLD))
+                {
+                    message.setWorld(worlds[i]);
+                }
+                if (columns.contains(ChatColumn.VALUE))
+                {
+                    message.setValue(values[i]);
+                }
+                consumer.accept(message);
+            }
+            count += rows;
+        }
+        return count;
+    }
+
+    /*
+     * Decodes the wanted columns of a block, returns false if the file ends part way through it
+     */
+    private boolean readBlock(int rows) throws IOException, DataFormatException
+    {
+        for (ChatColumn column : ChatColumn.values())
+        {
+            if (!readFully(header, 8))
+            {
+                return false;
+            }
+            int storedLength = header.getInt();
+            int rawLength = header.getInt();
+
+            if (!columns.contains(column))
+            {
+                long next = channel.position() + storedLength;
+                if (next > channel.size())
+                {
+                    return false;
+                }
+                channel.position(next);
+                continue;
+            }
+
+            ByteBuffer data = readColumn(storedLength, rawLength);
+            if (data == null)
+            {
+                return false;
+            }
+            switch (column)
+            {
+                case TIMESTAMP:
+                    readDeltas(data, timestamps, rows);
+                    break;
+                case TYPE:
+                    readDictionary(data, types, rows);
+                    break;
+                case SENDER:
+                    readDictionary(data, senders, rows);
+                    break;
+                case NAME:
+                    readDictionary(data, names, rows);
+                    break;
+                case WORLD:
+                    readDeltas(data, worlds, rows);
+                    break;
+                case VALUE:
+                    for (int i = 0; i < rows; i++)
+                    {
+                        values[i] = readString(data);
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer readColumn(int storedLength, int rawLength) throws IOException, DataFormatException
+    {
+        if (stored.capacity() < storedLength)
+        {
+            stored = ByteBuffer.allocate(storedLength);
+        }
+        if (!readFully(stored, storedLength))
+        {
+            return null;
+        }
+        if (inflater == null)
+        {
+            return stored;
+        }
+
+        if (raw.capacity() < rawLength)
+        {
+            raw = ByteBuffer.allocate(rawLength);
+        }
+        inflater.reset();
+        inflater.setInput(stored.array(), 0, storedLength);
+        int length = 0;
+        while (length < rawLength && !inflater.finished())
+        {
+            int inflated = inflater.inflate(raw.array(), length, rawLength - length);
+            if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+            {
+                throw new DataFormatException("Truncated column");
+            }
+            length += inflated;
+        }
+        raw.clear();
+        raw.limit(length);
+        return raw;
+    }
+
+    /*
+     * Reads length bytes from the channel into buffer and flips it, returns false at the end of the file
+     */
+    private boolean readFully(ByteBuffer buffer, int length) throws IOException
+    {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer) < 0)
+            {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static void readDeltas(ByteBuffer data, int[] target, int rows)
+    {
+        int previous = 0;
+        for (int i = 0; i < rows; i++)
+        {
+            int zigzag = readVarInt(data);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            target[i] = previous;
+        }
+    }
+
+    private static void readDictionary(ByteBuffer data, String[] target, int rows)
+    {
+        String[] entries = new String[readVarInt(data)];
+        for (int i = 0; i < entries.length; i++)
+        {
+            entries[i] = readString(data);
+        }
+        for (int i = 0; i < rows; i++)
+        {
+            target[i] = entries[readVarInt(data)];
+        }
+    }
+
+    private static int readVarInt(ByteBuffer data)
+    {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do
+        {
+            b = data.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static String readString(ByteBuffer data)
+    {
+        int length = readVarInt(data) - 1;
+        if (length < 0)
+        {
+            return null;
+        }
+        String value = new String(data.array(), data.position(), length, StandardCharsets.UTF_8);
+        data.position(data.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.chatdumper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/*
+ * Writes chat messages as a columnar segment. After a short header the file
+ * is a series of blocks of up to BLOCK_ROWS messages, each one starting with
+ * its message count followed by every ChatColumn in order. A column is its
+ * stored length, its length before compression and the data, so a reader
+ * can skip the columns it does not need without decoding them.
+ *
+ * Timestamps and worlds are zigzag varint deltas from the previous message,
+ * type, sender and name are a dictionary of the block's distinct strings
+ * followed by a varint index per message, and values are length prefixed
+ * UTF-8. With deflate each column is compressed on its own. Blocks stand
+ * alone, so a file cut short by a crash is readable up to its last full block.
+ */
+class ChatSegmentWriter
+{
+    static final int MAGIC = 0x4f534353;
+    static final int VERSION = 1;
+    static final int FLAG_DEFLATE = 1;
+    static final int BLOCK_ROWS = 1024;
+
+    /*
+     * The strings of a dictionary encoded column for one block
+     */
+    private static class Dictionary
+    {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> entries = new ArrayList<>();
+        private final int[] rows = new int[BLOCK_ROWS];
+        private int count;
+
+        void add(String value)
+        {
+            Integer id = ids.get(value);
+            if (id == null)
+            {
+                id = entries.size();
+                ids.put(value, id);
+                entries.add(value);
+            }
+            rows[count++] = id;
+        }
+
+        void encode(ColumnBuffer column)
+        {
+            writeVarInt(column, entries.size());
+            for (String entry : entries)
+            {
+                writeString(column, entry);
+            }
+            for (int i = 0; i < count; i++)
+            {
+                writeVarInt(column, rows[i]);
+            }
+        }
+
+        void clear()
+        {
+            ids.clear();
+            entries.clear();
+            count = 0;
+        }
+    }
+
+    /*
+     * Reusable column buffer, encoded data is written straight from its array
+     */
+    private static class ColumnBuffer extends ByteArrayOutputStream
+    {
+        byte[] buffer()
+        {
+            return buf;
+        }
+    }
+
+    private final DataOutputStream out;
+    private final Deflater deflater;
+    private final ColumnBuffer column = new ColumnBuffer();
+    private byte[] deflated = new byte[8192];
+
+    private final int[] timestamps = new int[BLOCK_ROWS];
+    private final Dictionary types = new Dictionary();
+    private final Dictionary senders = new Dictionary();
+    private final Dictionary names = new Dictionary();
+    private final int[] worlds = new int[BLOCK_ROWS];
+    private final String[] values = new String[BLOCK_ROWS];
+    private int rows;
+
+    /*
+     * Writes the segment header to out. level is the deflate level, 1 (fastest)
+     * to 9 (smallest), used if deflate is set.
+     */
+    ChatSegmentWriter(OutputStream out, boolean deflate, int level) throws IOException
+    {
+        this.out = new DataOutputStream(out);
+        this.deflater = deflate ? new Deflater(level >= 1 && level <= 9 ? level : Deflater.DEFAULT_COMPRESSION) : null;
+
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+        this.out.writeByte(deflate ? FLAG_DEFLATE : 0);
+    }
+
+    /*
+     * Adds a message to the current block, writing the block out once it is full
+     */
+    void add(ChatMessageData message) throws IOException
+    {
+        timestamps[rows] = message.getTimestamp();
+        types.add(message.getType());
+        senders.add(message.getSender());
+        names.add(message.getName());
+        worlds[rows] = message.getWorld();
+        values[rows] = message.getValue();
+
+        if (++rows == BLOCK_ROWS)
+        {
+            writeBlock();
+        }
+    }
+
+    /*
+     * Writes out the last, partly filled block. The underlying stream is left open.
+     */
+    void finish() throws IOException
+    {
+        try
+        {
+            writeBlock();
+        }
+        finally
+        {
+            if (deflater != null)
+            {
+                deflater.end();
+            }
+        }
+    }
+
+    private void writeBlock() throws IOException
+    {
+        if (rows == 0)
+        {
+            return;
+        }
+
+        out.writeInt(rows);
+        for (ChatColumn chatColumn : ChatColumn.values())
+        {
+            column.reset();
+            switch (chatColumn)
+            {
+                case TIMESTAMP:
+                    writeDeltas(timestamps);
+                    break;
+                case TYPE:
+                    types.encode(column);
+                    break;
+                case SENDER:
+                    senders.encode(column);
+                    break;
+                case NAME:
+                    names.encode(column);
+                    break;
+                case WORLD:
+                    writeDeltas(worlds);
+                    break;
+                case VALUE:
+                    for (int i = 0; i < rows; i++)
+                    {
+                        writeString(column, values[i]);
+                    }
+                    break;
+            }
+            writeColumn();
+        }
+
+        types.clear();
+        senders.clear();
+        names.clear();
+        Arrays.fill(values, 0, rows, null);
+        rows = 0;
+    }
+
+    private void writeDeltas(int[] data)
+    {
+        int previous = 0;
+        for (int i = 0; i < rows; i++)
+        {
+            int delta = data[i] - previous;
+            writeVarInt(column, (delta << 1) ^ (delta >> 31));
+            previous = data[i];
+        }
+    }
+
+    private void writeColumn() throws IOException
+    {
+        int length = column.size();
+        if (deflater == null)
+        {
+            out.writeInt(length);
+            out.writeInt(length);
+            out.write(column.buffer(), 0, length);
+            return;
+        }
+
+        deflater.reset();
+        deflater.setInput(column.buffer(), 0, length);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished())
+        {
+            if (size == deflated.length)
+            {
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            }
+            size += deflater.deflate(deflated, size, deflated.length - size);
+        }
+        out.writeInt(size);
+        out.writeInt(length);
+        out.write(deflated, 0, size);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream column, int value)
+    {
+        while ((value & ~0x7f) != 0)
+        {
+            column.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        column.write(value);
+    }
+
+    /*
+     * Writes length + 1 then the UTF-8 bytes, 0 for null
+     */
+    private static void writeString(ByteArrayOutputStream column, String value)
+    {
+        if (value == null)
+        {
+            writeVarInt(column, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(column, bytes.length + 1);
+        column.write(bytes, 0, bytes.length);
+    }
+}
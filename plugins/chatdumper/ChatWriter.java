@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.chatdumper;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.MessageNode;
+
+/*
+ * Moves chat messages off the client thread. submit() copies the message
+ * fields into a preallocated ring slot and returns; a dedicated writer thread
+ * drains the ring in batches into the ChatArchive, which is only ever touched
+ * from that thread. With nothing to write the writer parks until submit()
+ * wakes it or the archive next needs to sync or close its file. When the ring is full the ChatOverflow policy decides
+ * what happens to the message, and each case is counted. The spill queue is
+ * bounded too, so a writer stuck on a slow disk can't fill the heap.
+ */
+@Slf4j
+class ChatWriter
+{
+    private static final int RING_SIZE = 4096;
+    private static final int BATCH_SIZE = 256;
+    private static final int SPILL_LIMIT = 16 * RING_SIZE;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final ChatArchive archive;
+    private final ChatOverflow overflow;
+    private final ChatRing ring = new ChatRing(RING_SIZE);
+    // Messages that did not fit in the ring under SPILL, written after the ring
+    private final Queue<ChatMessageData> spill = new ConcurrentLinkedQueue<>();
+    // The size of spill, ConcurrentLinkedQueue.size() walks the whole queue
+    private final AtomicInteger spillSize = new AtomicInteger();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("chat-archive-writer")
+            .setDaemon(true)
+            .build());
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running = true;
+    private volatile boolean rotateRequested;
+    // Set by the writer before it parks, producers unpark it only while set
+    private volatile boolean sleeping;
+    private volatile Thread writerThread;
+
+    ChatWriter(ChatArchive archive, ChatOverflow overflow)
+    {
+        this.archive = archive;
+        this.overflow = overflow;
+        writer.execute(this::run);
+    }
+
+    /*
+     * Queues a message for the archive. Only called from the client thread.
+     */
+    void submit(MessageNode messageNode, int world)
+    {
+        // Once anything has spilled, keep spilling until the writer has caught
+        // up so messages stay in order
+        if (overflow == ChatOverflow.SPILL && !spill.isEmpty())
+        {
+            spill(messageNode, world);
+            return;
+        }
+
+        ChatMessageData slot = ring.claim();
+        if (slot == null)
+        {
+            switch (overflow)
+            {
+                case DROP:
+                    dropped.increment();
+                    return;
+                case SPILL:
+                    spill(messageNode, world);
+                    return;
+                case BLOCK:
+                    blocked.increment();
+                    while ((slot = ring.claim()) == null && running)
+                    {
+                        LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    }
+                    if (slot == null)
+                    {
+                        dropped.increment();
+                        return;
+                    }
+                    break;
+            }
+        }
+
+        slot.populateChatMessageData(messageNode, world);
+        ring.publish();
+        queued.increment();
+        wake();
+    }
+
+    /*
+     * Asks the writer thread to start a new archive file
+     */
+    void rotate()
+    {
+        rotateRequested = true;
+        wake();
+    }
+
+    /*
+     * Writes everything still queued, closes the archive and stops the writer thread
+     */
+    void close() throws InterruptedException
+    {
+        running = false;
+        wake();
+        writer.shutdown();
+        if (!writer.awaitTermination(10, TimeUnit.SECONDS))
+        {
+            log.warn("Timed out closing the chat archive");
+        }
+        log.info("Chat archive: {}", getStats());
+    }
+
+    String getStats()
+    {
+        return String.format("%d queued, %d written, %d spilled, %d blocked, %d dropped, %d failed",
+                queued.sum(), written.sum(), spilled.sum(), blocked.sum(), dropped.sum(), failed.sum());
+    }
+
+    private void spill(MessageNode messageNode, int world)
+    {
+        if (spillSize.get() >= SPILL_LIMIT)
+        {
+            dropped.increment();
+            return;
+        }
+
+        ChatMessageData message = new ChatMessageData();
+        message.populateChatMessageData(messageNode, world);
+        spill.add(message);
+        spillSize.incrementAndGet();
+        spilled.increment();
+        wake();
+    }
+
+    /*
+     * Unparks the writer thread if it is waiting for work
+     */
+    private void wake()
+    {
+        if (sleeping)
+        {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void run()
+    {
+        writerThread = Thread.currentThread();
+        while (true)
+        {
+            // Read before draining, so nothing submitted before close() is missed
+            boolean stopping = !running;
+
+            if (rotateRequested)
+            {
+                rotateRequested = false;
+                try
+                {
+                    archive.rotate();
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+
+            int drained = 0;
+            int batch;
+            while ((batch = ring.drain(this::write, BATCH_SIZE)) > 0)
+            {
+                drained += batch;
+            }
+            ChatMessageData message;
+            while ((message = spill.poll()) != null)
+            {
+                spillSize.decrementAndGet();
+                write(message);
+                drained++;
+            }
+
+            if (stopping && drained == 0)
+            {
+                break;
+            }
+            if (drained == 0)
+            {
+                tick();
+                park();
+            }
+        }
+
+        try
+        {
+            archive.close();
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to close the chat archive", e);
+        }
+    }
+
+    /*
+     * Parks until a producer wakes the writer or the archive's next deadline.
+     * The flag is set before the last look at the queues, so work published
+     * after that look always sees it and unparks.
+     */
+    private void park()
+    {
+        sleeping = true;
+        if (ring.isEmpty() && spill.isEmpty() && running && !rotateRequested)
+        {
+            long deadline = archive.getDeadline();
+            if (deadline == Long.MAX_VALUE)
+            {
+                LockSupport.park(this);
+            }
+            else
+            {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.max(1, deadline - System.currentTimeMillis())));
+            }
+        }
+        sleeping = false;
+    }
+
+    /*
+     * Lets the archive sync or close its file on time while no chat is arriving
+     */
+    private void tick()
+    {
+        try
+        {
+            archive.tick(System.currentTimeMillis());
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to sync the chat archive", e);
+        }
+    }
+
+    private void write(ChatMessageData message)
+    {
+        try
+        {
+            archive.append(message);
+            written.increment();
+        }
+        catch (IOException e)
+        {
+            failed.increment();
+            log.warn("Failed to archive chat message", e);
+        }
+    }
+}
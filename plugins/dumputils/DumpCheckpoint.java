@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import lombok.Getter;
+
+/*
+ * A small properties file recording how far a dump job got, so it can be
+ * resumed after being paused, cancelled or the client crashing. Every ID
+ * before getResumeId() has been completely written to the job's output.
+ */
+public class DumpCheckpoint
+{
+    private static final String START = "start";
+    private static final String END = "end";
+    private static final String RESUME = "resume";
+
+    @Getter
+    private final String name;
+    private final File file;
+    private final Properties properties = new Properties();
+
+    public DumpCheckpoint(String name, int start, int end, int resumeId)
+    {
+        this(name);
+        setLong(START, start);
+        setLong(END, end);
+        setLong(RESUME, resumeId);
+    }
+
+    private DumpCheckpoint(String name)
+    {
+        this.name = name;
+        this.file = fileFor(name);
+    }
+
+    private static File fileFor(String name)
+    {
+        return new File(name + ".checkpoint");
+    }
+
+    public static boolean exists(String name)
+    {
+        return fileFor(name).exists();
+    }
+
+    /*
+     * Returns the checkpoint saved for the named job, or null if there is none
+     */
+    public static DumpCheckpoint load(String name) throws IOException
+    {
+        DumpCheckpoint checkpoint = new DumpCheckpoint(name);
+        if (!checkpoint.file.exists())
+        {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(checkpoint.file))
+        {
+            checkpoint.properties.load(in);
+        }
+        return checkpoint;
+    }
+
+    public int getStart()
+    {
+        return (int) getLong(START);
+    }
+
+    public int getEnd()
+    {
+        return (int) getLong(END);
+    }
+
+    public int getResumeId()
+    {
+        return (int) getLong(RESUME);
+    }
+
+    public long getLong(String key)
+    {
+        return Long.parseLong(properties.getProperty(key, "0"));
+    }
+
+    public boolean getBoolean(String key)
+    {
+        return Boolean.parseBoolean(properties.getProperty(key, "false"));
+    }
+
+    public String getString(String key, String defaultValue)
+    {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    public DumpCheckpoint setLong(String key, long value)
+    {
+        properties.setProperty(key, Long.toString(value));
+        return this;
+    }
+
+    public DumpCheckpoint setBoolean(String key, boolean value)
+    {
+        properties.setProperty(key, Boolean.toString(value));
+        return this;
+    }
+
+    public DumpCheckpoint setString(String key, String value)
+    {
+        properties.setProperty(key, value);
+        return this;
+    }
+
+    public void save() throws IOException
+    {
+        // Write a new file and swap it in, so a crash never leaves a half written checkpoint
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile))
+        {
+            properties.store(out, "Dump checkpoint: " + name);
+            out.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void delete(String name)
+    {
+        fileFor(name).delete();
+    }
+}
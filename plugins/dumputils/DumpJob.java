@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+/*
+ * A dump over a range of IDs that is run a few IDs at a time by the
+ * DumpScheduler. capture() is called on the client thread, implementations
+ * hand the slow work (serialising, encoding, writing) to background threads.
+ */
+public abstract class DumpJob
+{
+    // How many IDs are captured between checkpoints
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final int start;
+    @Getter
+    private final int end;
+    @Getter
+    private int nextId;
+    private int lastCheckpoint;
+    @Getter
+    private final DumpMetrics metrics = new DumpMetrics();
+
+    protected DumpJob(String name, int start, int end, int resumeId)
+    {
+        this.name = name;
+        this.start = start;
+        this.end = end;
+        this.nextId = Math.max(start, resumeId);
+        this.lastCheckpoint = this.nextId;
+    }
+
+    /*
+     * Captures up to budget IDs, returns false once every ID has been captured
+     */
+    boolean process(int budget) throws InterruptedException
+    {
+        int limit = Math.min(end, nextId + budget);
+        while (nextId < limit && hasCapacity())
+        {
+            captureNext();
+        }
+        return nextId < end;
+    }
+
+    /*
+     * Captures the next ID, checkpointing every CHECKPOINT_INTERVAL IDs
+     */
+    void captureNext() throws InterruptedException
+    {
+        capture(nextId);
+        nextId++;
+        metrics.scanned();
+
+        if (nextId - lastCheckpoint >= CHECKPOINT_INTERVAL)
+        {
+            checkpoint(nextId);
+            lastCheckpoint = nextId;
+        }
+    }
+
+    public int getProgress()
+    {
+        if (end <= start)
+        {
+            return 100;
+        }
+        return (int) ((nextId - start) * 100L / (end - start));
+    }
+
+    /*
+     * Returns the jobs whose metrics make up this one, itself unless it runs other jobs
+     */
+    public List<DumpJob> getParts()
+    {
+        return Collections.singletonList(this);
+    }
+
+    protected DumpCheckpoint newCheckpoint(int resumeId)
+    {
+        return new DumpCheckpoint(name, start, end, resumeId);
+    }
+
+    /*
+     * Returns false if the background stages are full and capture() would block
+     */
+    protected abstract boolean hasCapacity();
+
+    protected abstract void capture(int id) throws InterruptedException;
+
+    /*
+     * Saves a checkpoint once every ID before resumeId has been written.
+     * Must not block the client thread.
+     */
+    protected abstract void checkpoint(int resumeId);
+
+    /*
+     * Called once capturing stops. If complete is false the job was cancelled,
+     * and should leave a checkpoint at getNextId() so it can be resumed.
+     */
+    protected abstract void finish(boolean complete);
+
+    /*
+     * Returns true once all output has been written after finish()
+     */
+    public abstract boolean isDone();
+}
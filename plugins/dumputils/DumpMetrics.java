@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import com.google.gson.JsonObject;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counters and phase timers of a dump job. The client thread, pipeline
+ * workers and icon exporter threads all record into the same instance, so
+ * everything is kept in LongAdders.
+ */
+public class DumpMetrics
+{
+    public enum Phase
+    {
+        // Fetching definitions and icons from the client
+        FETCH,
+        // Fingerprinting and copying fields on the client thread
+        DERIVE,
+        // Building JSON on the pipeline workers
+        SERIALIZE,
+        // Encoding images
+        ENCODE,
+        // Writing output files
+        WRITE
+    }
+
+    private final long startMillis = System.currentTimeMillis();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder iconsEncoded = new LongAdder();
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+    public DumpMetrics()
+    {
+        for (int i = 0; i < phaseNanos.length; i++)
+        {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    /*
+     * Returns the start time to pass to record()
+     */
+    public static long start()
+    {
+        return System.nanoTime();
+    }
+
+    public void record(Phase phase, long start)
+    {
+        phaseNanos[phase.ordinal()].add(System.nanoTime() - start);
+    }
+
+    public void scanned()
+    {
+        scanned.increment();
+    }
+
+    public void skipped()
+    {
+        skipped.increment();
+    }
+
+    public void exported()
+    {
+        exported.increment();
+    }
+
+    public void iconEncoded()
+    {
+        iconsEncoded.increment();
+    }
+
+    public void bytesWritten(long bytes)
+    {
+        bytesWritten.add(bytes);
+    }
+
+    public long getScanned()
+    {
+        return scanned.sum();
+    }
+
+    public long getSkipped()
+    {
+        return skipped.sum();
+    }
+
+    public long getExported()
+    {
+        return exported.sum();
+    }
+
+    public long getBytesWritten()
+    {
+        return bytesWritten.sum();
+    }
+
+    public long getIconsEncoded()
+    {
+        return iconsEncoded.sum();
+    }
+
+    public long getPhaseMillis(Phase phase)
+    {
+        return phaseNanos[phase.ordinal()].sum() / 1_000_000;
+    }
+
+    public long getElapsedMillis()
+    {
+        return System.currentTimeMillis() - startMillis;
+    }
+
+    public double getIdsPerSecond()
+    {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : getScanned() * 1000.0 / elapsed;
+    }
+
+    public JsonObject toJson()
+    {
+        JsonObject json = new JsonObject();
+        json.addProperty("elapsedMillis", getElapsedMillis());
+        json.addProperty("idsScanned", getScanned());
+        json.addProperty("idsSkipped", getSkipped());
+        json.addProperty("idsExported", getExported());
+        json.addProperty("bytesWritten", getBytesWritten());
+        json.addProperty("iconsEncoded", getIconsEncoded());
+        json.addProperty("idsPerSecond", Math.round(getIdsPerSecond()));
+
+        JsonObject phases = new JsonObject();
+        for (Phase phase : Phase.values())
+        {
+            phases.addProperty(phase.name().toLowerCase(), getPhaseMillis(phase));
+        }
+        json.add("phaseMillis", phases);
+        return json;
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Output stream for a dump file that compresses the data as it is written,
+ * and keeps a SHA-256 checksum of the bytes that end up in the file.
+ *
+ * Gzip output is written as a series of gzip members, a new one starting after
+ * every sync(), so the file is always valid up to getFilePosition() and can be
+ * truncated there and appended to when a dump resumes. gzip and
+ * GZIPInputStream read the members back as one stream.
+ */
+public class DumpOutputStream extends OutputStream
+{
+    private static final int BUFFER_SIZE = 65536;
+
+    private static class GzipMember extends GZIPOutputStream
+    {
+        GzipMember(OutputStream out, int level) throws IOException
+        {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+
+        /*
+         * Writes the trailer and frees the deflater, leaving the file open
+         */
+        void end() throws IOException
+        {
+            finish();
+            def.end();
+        }
+    }
+
+    private final OutputCompression compression;
+    private final int level;
+    private final FileOutputStream fileOut;
+    private final MessageDigest digest;
+    private long filePosition;
+    private long written;
+    private GzipMember member;
+    private OutputStream out;
+    private String checksum;
+
+    // Everything that reaches the file goes through here
+    private final OutputStream fileStream = new OutputStream()
+    {
+        @Override
+        public void write(int b) throws IOException
+        {
+            fileOut.write(b);
+            digest.update((byte) b);
+            filePosition++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            fileOut.write(b, off, len);
+            digest.update(b, off, len);
+            filePosition += len;
+        }
+    };
+
+    public DumpOutputStream(File file, OutputCompression compression, int level) throws IOException
+    {
+        this(file, compression, level, 0);
+    }
+
+    /*
+     * Reopens a file written up to resumePosition (as returned by
+     * getFilePosition() after a sync()), discarding anything written after it.
+     * 0 starts a new file. level is the deflate level, 1 (fastest) to 9 (smallest).
+     */
+    public DumpOutputStream(File file, OutputCompression compression, int level, long resumePosition) throws IOException
+    {
+        this.compression = compression;
+        this.level = level >= 1 && level <= 9 ? level : Deflater.DEFAULT_COMPRESSION;
+        this.digest = newDigest();
+
+        if (resumePosition > 0)
+        {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+            {
+                raf.setLength(resumePosition);
+            }
+            this.written = readBack(file, resumePosition);
+            this.filePosition = resumePosition;
+            this.fileOut = new FileOutputStream(file, true);
+        }
+        else
+        {
+            this.fileOut = new FileOutputStream(file);
+        }
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Runs the part of the file already written through the checksum, and
+     * returns how many bytes it holds before compression
+     */
+    private long readBack(File file, long length) throws IOException
+    {
+        if (compression == OutputCompression.NONE)
+        {
+            return length;
+        }
+
+        long count = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream raw = new DigestInputStream(new BufferedInputStream(new FileInputStream(file)), digest))
+        {
+            InputStream data = new GZIPInputStream(raw, BUFFER_SIZE);
+            int read;
+            while ((read = data.read(buffer)) >= 0)
+            {
+                count += read;
+            }
+            // Make sure every byte of the file reached the checksum
+            ByteStreams.exhaust(raw);
+        }
+        return count;
+    }
+
+    /*
+     * Opens a writer for a file written in one go, with a checksum file next
+     * to it if it is compressed
+     */
+    public static Writer openWriter(File file, OutputCompression compression, int level) throws IOException
+    {
+        if (compression == OutputCompression.NONE)
+        {
+            return new FileWriter(file);
+        }
+
+        DumpOutputStream out = new DumpOutputStream(file, compression, level);
+        return new OutputStreamWriter(out, Charset.defaultCharset())
+        {
+            @Override
+            public void close() throws IOException
+            {
+                super.close();
+                writeChecksum(file, out.getChecksum());
+            }
+        };
+    }
+
+    /*
+     * Writes checksum to <file>.sha256, in the format sha256sum -c reads
+     */
+    public static void writeChecksum(File file, String checksum) throws IOException
+    {
+        try (FileWriter fw = new FileWriter(file.getPath() + ".sha256"))
+        {
+            fw.write(checksum + "  " + file.getName() + "\n");
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        stream().write(b);
+        written++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        stream().write(b, off, len);
+        written += len;
+    }
+
+    private OutputStream stream() throws IOException
+    {
+        if (out == null)
+        {
+            if (compression == OutputCompression.GZIP)
+            {
+                member = new GzipMember(fileStream, level);
+                out = new BufferedOutputStream(member, BUFFER_SIZE);
+            }
+            else
+            {
+                out = new BufferedOutputStream(fileStream, BUFFER_SIZE);
+            }
+        }
+        return out;
+    }
+
+    /*
+     * Returns the number of bytes written before compression
+     */
+    public long getWritten()
+    {
+        return written;
+    }
+
+    /*
+     * Returns the number of bytes in the file, only a resume position after sync()
+     */
+    public long getFilePosition()
+    {
+        return filePosition;
+    }
+
+    /*
+     * Returns the SHA-256 of the file as a hex string, once it has been closed
+     */
+    public String getChecksum()
+    {
+        if (checksum == null)
+        {
+            checksum = BaseEncoding.base16().lowerCase().encode(digest.digest());
+        }
+        return checksum;
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        if (out != null)
+        {
+            out.flush();
+        }
+    }
+
+    /*
+     * Ends the current gzip member and forces the file to disk, call before saving a checkpoint
+     */
+    public void sync() throws IOException
+    {
+        endMember();
+        fileOut.getFD().sync();
+    }
+
+    private void endMember() throws IOException
+    {
+        flush();
+        if (member != null)
+        {
+            member.end();
+            member = null;
+            out = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            endMember();
+        }
+        finally
+        {
+            fileOut.close();
+        }
+    }
+}
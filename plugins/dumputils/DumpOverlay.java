@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.PanelComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+/*
+ * Shows the progress and metrics of the running dump, hidden when no dump is running
+ */
+class DumpOverlay extends Overlay
+{
+    private final ItemDumpEngine engine;
+    private final PanelComponent panelComponent = new PanelComponent();
+
+    DumpOverlay(ItemDumpEngine engine)
+    {
+        setPosition(OverlayPosition.TOP_LEFT);
+        this.engine = engine;
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics)
+    {
+        DumpJob job = engine.getCurrentJob();
+        if (job == null)
+        {
+            return null;
+        }
+
+        panelComponent.getChildren().clear();
+        panelComponent.setPreferredSize(new Dimension(170, 0));
+        panelComponent.getChildren().add(TitleComponent.builder()
+                .text(job.getName() + " dump")
+                .color(Color.GREEN)
+                .build());
+        addLine("Progress:", job.getProgress() + "%");
+
+        // A single pass shows the numbers of each output it writes
+        boolean single = job.getParts().size() == 1;
+        for (DumpJob part : job.getParts())
+        {
+            DumpMetrics metrics = part.getMetrics();
+            if (!single)
+            {
+                panelComponent.getChildren().add(TitleComponent.builder()
+                        .text(part.getName())
+                        .build());
+            }
+            addLine("IDs/s:", String.format("%.0f", metrics.getIdsPerSecond()));
+            addLine("Exported:", metrics.getExported() + " / " + metrics.getScanned());
+            addLine("Skipped:", Long.toString(metrics.getSkipped()));
+            addLine("Written:", String.format("%.1f MB", metrics.getBytesWritten() / 1048576.0));
+            if (metrics.getIconsEncoded() > 0)
+            {
+                addLine("Icons:", Long.toString(metrics.getIconsEncoded()));
+            }
+            addLine("Slowest:", slowestPhase(metrics));
+        }
+
+        return panelComponent.render(graphics);
+    }
+
+    private void addLine(String left, String right)
+    {
+        panelComponent.getChildren().add(LineComponent.builder()
+                .left(left)
+                .right(right)
+                .build());
+    }
+
+    private static String slowestPhase(DumpMetrics metrics)
+    {
+        DumpMetrics.Phase slowest = DumpMetrics.Phase.FETCH;
+        for (DumpMetrics.Phase phase : DumpMetrics.Phase.values())
+        {
+            if (metrics.getPhaseMillis(phase) > metrics.getPhaseMillis(slowest))
+            {
+                slowest = phase;
+            }
+        }
+        return slowest.name().toLowerCase() + " " + metrics.getPhaseMillis(slowest) + " ms";
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Second stage of a dump: tasks submitted from the client thread are run on a
+ * pool of worker threads, and their results are handed to the sink on a single
+ * writer thread in the same order they were submitted. At most maxInFlight
+ * tasks are queued at once, submit() blocks when the workers fall behind.
+ */
+@Slf4j
+public class DumpPipeline<T>
+{
+    public interface Sink<T>
+    {
+        void accept(T result) throws IOException;
+    }
+
+    private final ExecutorService workers;
+    private final ExecutorService writer;
+    private final Semaphore inFlight;
+    private final Sink<T> sink;
+    private volatile boolean done = false;
+
+    public DumpPipeline(String name, int threads, int maxInFlight, Sink<T> sink)
+    {
+        this.workers = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat(name + "-worker-%d")
+                .setDaemon(true)
+                .build());
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat(name + "-writer")
+                .setDaemon(true)
+                .build());
+        this.inFlight = new Semaphore(maxInFlight);
+        this.sink = sink;
+    }
+
+    public DumpPipeline(String name, Sink<T> sink)
+    {
+        this(name, defaultThreads(), 1024, sink);
+    }
+
+    public static int defaultThreads()
+    {
+        // Leave a core for the client thread
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    public void submit(Callable<T> task) throws InterruptedException
+    {
+        inFlight.acquire();
+        final Future<T> result = workers.submit(task);
+        writer.execute(() ->
+        {
+            try
+            {
+                sink.accept(result.get());
+            }
+            catch (ExecutionException | IOException e)
+            {
+                log.warn("Dump task failed", e);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                inFlight.release();
+            }
+        });
+    }
+
+    /*
+     * Returns false if submit() would block
+     */
+    public boolean hasCapacity()
+    {
+        return inFlight.availablePermits() > 0;
+    }
+
+    /*
+     * Runs action on the writer thread once every task submitted so far has been
+     * written, without waiting for it. Used to save checkpoints.
+     */
+    public void barrier(Runnable action)
+    {
+        writer.execute(() ->
+        {
+            try
+            {
+                action.run();
+            }
+            catch (RuntimeException e)
+            {
+                log.warn("Dump barrier failed", e);
+            }
+        });
+    }
+
+    /*
+     * Runs onComplete on the writer thread once every submitted task has been
+     * written, then shuts the pipeline down. Does not block the caller.
+     */
+    public void finish(Runnable onComplete)
+    {
+        writer.execute(() ->
+        {
+            try
+            {
+                onComplete.run();
+            }
+            finally
+            {
+                done = true;
+            }
+        });
+        workers.shutdown();
+        writer.shutdown();
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+}
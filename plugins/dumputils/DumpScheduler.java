@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Runs one DumpJob at a time, a fixed budget of IDs per client tick, so a
+ * dump never freezes the client. Jobs can be paused, resumed and cancelled,
+ * and a cancelled or crashed job can be resumed from its checkpoint.
+ */
+@Slf4j
+public class DumpScheduler
+{
+    private final Consumer<String> messages;
+    private DumpJob job;
+    private DumpJob finishing;
+    private boolean finishingComplete;
+    private boolean reported = true;
+    private boolean paused;
+    private int lastReported;
+
+    public DumpScheduler(Consumer<String> messages)
+    {
+        this.messages = messages;
+    }
+
+    public boolean isBusy()
+    {
+        return job != null || (finishing != null && !finishing.isDone());
+    }
+
+    /*
+     * Returns the job being captured or written, or null if there is none
+     */
+    public DumpJob getCurrentJob()
+    {
+        if (job != null)
+        {
+            return job;
+        }
+        return finishing != null && !finishing.isDone() ? finishing : null;
+    }
+
+    public void start(DumpJob newJob)
+    {
+        if (isBusy())
+        {
+            message("A dump is already running");
+            return;
+        }
+        job = newJob;
+        paused = false;
+        lastReported = job.getProgress() / 10;
+        message("Started " + job.getName() + " dump from ID " + job.getNextId() + " to " + job.getEnd());
+    }
+
+    /*
+     * Handles the pause, resume, cancel and status arguments of a dump command.
+     * resume restarts a cancelled or crashed job using restore, which returns
+     * null if there is nothing to resume.
+     */
+    public void control(String argument, Supplier<DumpJob> restore)
+    {
+        switch (argument)
+        {
+            case "pause":
+            {
+                if (job != null)
+                {
+                    paused = true;
+                    message(job.getName() + " dump paused at ID " + job.getNextId());
+                }
+                break;
+            }
+            case "resume":
+            {
+                if (job != null)
+                {
+                    paused = false;
+                    message(job.getName() + " dump resumed at ID " + job.getNextId());
+                }
+                else if (!isBusy())
+                {
+                    DumpJob restored = restore.get();
+                    if (restored == null)
+                    {
+                        message("No dump to resume");
+                    }
+                    else
+                    {
+                        start(restored);
+                    }
+                }
+                break;
+            }
+            case "cancel":
+            {
+                if (job != null)
+                {
+                    message(job.getName() + " dump cancelled at ID " + job.getNextId() + ", use resume to continue");
+                    stop(false);
+                }
+                break;
+            }
+            case "status":
+            {
+                message(getStatus());
+                break;
+            }
+        }
+    }
+
+    public String getStatus()
+    {
+        if (job != null)
+        {
+            return job.getName() + " dump " + (paused ? "paused" : "running") + ": "
+                    + job.getProgress() + "% (ID " + job.getNextId() + " of " + job.getEnd() + ")";
+        }
+        if (finishing != null && !finishing.isDone())
+        {
+            return finishing.getName() + " dump is writing its output";
+        }
+        return "No dump running";
+    }
+
+    /*
+     * Call from onClientTick, captures up to budget IDs of the current job
+     */
+    public void tick(int budget)
+    {
+        if (!reported && finishing.isDone())
+        {
+            reported = true;
+            report(finishing, finishingComplete);
+        }
+
+        if (job == null || paused)
+        {
+            return;
+        }
+
+        boolean more;
+        try
+        {
+            // At least one ID, or the job would never move on
+            more = job.process(Math.max(1, budget));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            stop(false);
+            return;
+        }
+        catch (RuntimeException e)
+        {
+            log.warn("Dump job {} failed at ID {}", job.getName(), job.getNextId(), e);
+            message(job.getName() + " dump failed at ID " + job.getNextId() + ", use resume to retry");
+            stop(false);
+            return;
+        }
+
+        int progress = job.getProgress() / 10;
+        if (progress > lastReported)
+        {
+            lastReported = progress;
+            message(job.getName() + " dump: " + job.getProgress() + "%");
+        }
+
+        if (!more)
+        {
+            message(job.getName() + " dump captured, writing output...");
+            stop(true);
+        }
+    }
+
+    public void shutDown()
+    {
+        if (job != null)
+        {
+            stop(false);
+        }
+    }
+
+    private void stop(boolean complete)
+    {
+        finishing = job;
+        finishingComplete = complete;
+        reported = false;
+        job = null;
+        paused = false;
+        finishing.finish(complete);
+    }
+
+    /*
+     * Writes <name>-metrics.json, a summary of a finished run
+     */
+    private void report(DumpJob finished, boolean complete)
+    {
+        JsonObject summary = new JsonObject();
+        summary.addProperty("name", finished.getName());
+        summary.addProperty("complete", complete);
+        summary.addProperty("start", finished.getStart());
+        summary.addProperty("end", finished.getEnd());
+        summary.addProperty("nextId", finished.getNextId());
+
+        JsonObject jobs = new JsonObject();
+        long scanned = 0;
+        for (DumpJob part : finished.getParts())
+        {
+            jobs.add(part.getName(), part.getMetrics().toJson());
+            scanned = Math.max(scanned, part.getMetrics().getScanned());
+        }
+        summary.add("jobs", jobs);
+
+        String fileOut = finished.getName() + "-metrics.json";
+        try (FileWriter fw = new FileWriter(fileOut))
+        {
+            new GsonBuilder().create().toJson(summary, fw);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+
+        long elapsed = finished.getMetrics().getElapsedMillis();
+        message(String.format("%s dump finished: %d IDs in %.1fs, metrics saved to %s",
+                finished.getName(), scanned, elapsed / 1000.0, fileOut));
+    }
+
+    private void message(String message)
+    {
+        log.info(message);
+        messages.accept(message);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.awt.image.BufferedImage;
+import net.runelite.api.ItemComposition;
+
+/*
+ * 64-bit FNV-1a fingerprints of the values the dumpers export, used to tell
+ * whether an item has changed between two dumps without comparing the output.
+ */
+public class Fingerprint
+{
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET_BASIS;
+
+    public Fingerprint add(int value)
+    {
+        for (int i = 0; i < 4; i++)
+        {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= PRIME;
+        }
+        return this;
+    }
+
+    public Fingerprint add(boolean value)
+    {
+        return add(value ? 1 : 0);
+    }
+
+    public Fingerprint add(String value)
+    {
+        if (value == null)
+        {
+            return add(-1);
+        }
+        add(value.length());
+        for (int i = 0; i < value.length(); i++)
+        {
+            hash ^= value.charAt(i);
+            hash *= PRIME;
+        }
+        return this;
+    }
+
+    public Fingerprint add(String[] values)
+    {
+        if (values == null)
+        {
+            return add(-1);
+        }
+        add(values.length);
+        for (String value : values)
+        {
+            add(value);
+        }
+        return this;
+    }
+
+    public long get()
+    {
+        return hash;
+    }
+
+    public static long of(ItemComposition item)
+    {
+        return new Fingerprint()
+                .add(item.getId())
+                .add(item.getName())
+                .add(item.isMembers())
+                .add(item.isTradeable())
+                .add(item.isStackable())
+                .add(item.getNote())
+                .add(item.getLinkedNoteId())
+                .add(item.getPlaceholderTemplateId())
+                .add(item.getInventoryActions())
+                .add(item.getPrice())
+                .get();
+    }
+
+    public static long of(BufferedImage image)
+    {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Fingerprint fingerprint = new Fingerprint().add(width).add(height);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++)
+        {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int argb : row)
+            {
+                fingerprint.add(argb);
+            }
+        }
+        return fingerprint.get();
+    }
+}
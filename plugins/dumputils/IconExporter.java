@@ -0,0 +1,591 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.stream.JsonReader;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Encodes item icons to PNG on a pool of worker threads. The icon images are
+ * fetched on the client thread and handed over with submit(), which blocks once
+ * the queue is full so memory use stays bounded when encoding falls behind.
+ *
+ * With a content layout each distinct image is written once, named by the hash
+ * of its pixels. Every icon the dump stores or keeps is appended to manifest.log,
+ * so a dump that crashes or is resumed keeps its entries. Once a dump completes
+ * the entries of the IDs it covered are replaced by the logged ones, and stored
+ * images no item uses any more are deleted. Entries outside the ranges of the
+ * jobs sharing the exporter are left as they were, as other dumps wrote them.
+ */
+@Slf4j
+public class IconExporter
+{
+    private static final int QUEUE_PER_THREAD = 64;
+    private static final String STORE_DIRECTORY = "by-hash";
+    private static final String MANIFEST = "manifest.json";
+    private static final String MANIFEST_LOG = "manifest.log";
+
+    private final File directory;
+    private final IconLayout layout;
+    private final File storeDirectory;
+    // The last finished manifest, and the entries this dump has stored or kept
+    private final Map<Integer, String> previous = new HashMap<>();
+    private final Map<Integer, String> manifest = new ConcurrentSkipListMap<>();
+    // Completes with whether the image with that hash was stored
+    private final Map<Long, CompletableFuture<Boolean>> storedHashes = new ConcurrentHashMap<>();
+    // The [start, end) ranges of the jobs sharing the exporter
+    private final List<int[]> ranges = new ArrayList<>();
+    // The IDs submitted or kept in this dump
+    private final Set<Integer> exported = ConcurrentHashMap.newKeySet();
+    private PrintWriter manifestLog;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore queued;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ConcurrentSkipListSet<Integer> inFlight = new ConcurrentSkipListSet<>();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger stored = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final CompletableFuture<IconExportReport> report = new CompletableFuture<>();
+    private final long startTime = System.nanoTime();
+    private volatile boolean finishing = false;
+    private volatile boolean complete = false;
+    private volatile DumpMetrics metrics;
+
+    public IconExporter(String directory, int threads)
+    {
+        this(directory, threads, IconLayout.PER_ID);
+    }
+
+    public IconExporter(String directory, int threads, IconLayout layout)
+    {
+        this.directory = new File(directory);
+        if (!this.directory.exists()) this.directory.mkdirs();
+        this.layout = layout;
+        this.storeDirectory = new File(this.directory, STORE_DIRECTORY);
+        if (layout != IconLayout.PER_ID)
+        {
+            openManifest();
+        }
+
+        // A pool needs a thread, whatever the config says
+        threads = Math.max(1, threads);
+        int capacity = threads * QUEUE_PER_THREAD;
+        this.queued = new Semaphore(capacity);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("icon-exporter-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    /*
+     * Records encoded icons in metrics, unless another job sharing the exporter already does
+     */
+    public synchronized void reportTo(DumpMetrics metrics)
+    {
+        if (this.metrics == null)
+        {
+            this.metrics = metrics;
+        }
+    }
+
+    /*
+     * Adds the IDs a job dumps to the ones the exporter owns, only their
+     * manifest entries and icons are replaced once the dump completes
+     */
+    public synchronized void cover(int start, int end)
+    {
+        ranges.add(new int[]{start, end});
+    }
+
+    private boolean covers(int itemId)
+    {
+        for (int[] range : ranges)
+        {
+            if (itemId >= range[0] && itemId < range[1])
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void submit(int itemId, BufferedImage iconImage) throws InterruptedException
+    {
+        queued.acquire();
+        exported.add(itemId);
+        pending.incrementAndGet();
+        inFlight.add(itemId);
+        executor.execute(() ->
+        {
+            try
+            {
+                writeIcon(itemId, iconImage);
+            }
+            finally
+            {
+                queued.release();
+                synchronized (inFlight)
+                {
+                    inFlight.remove(itemId);
+                    inFlight.notifyAll();
+                }
+                if (pending.decrementAndGet() == 0 && finishing)
+                {
+                    complete();
+                }
+            }
+        });
+    }
+
+    /*
+     * Returns false if submit() would block
+     */
+    public boolean hasCapacity()
+    {
+        return queued.availablePermits() > 0;
+    }
+
+    /*
+     * Returns the lowest ID whose icon may not have been written yet, where
+     * nextId is the next ID that will be submitted
+     */
+    public int completedBefore(int nextId)
+    {
+        Iterator<Integer> it = inFlight.iterator();
+        return it.hasNext() ? Math.min(it.next(), nextId) : nextId;
+    }
+
+    /*
+     * Blocks until every icon submitted with an ID below itemId has been written
+     */
+    public void awaitCompletedBefore(int itemId) throws InterruptedException
+    {
+        synchronized (inFlight)
+        {
+            while (completedBefore(itemId) < itemId)
+            {
+                inFlight.wait();
+            }
+        }
+    }
+
+    /*
+     * Keeps the icon an earlier dump wrote for itemId if its pixels still have
+     * this fingerprint, so it does not have to be submitted again. Returns
+     * false if the icon is missing or has changed.
+     */
+    public boolean keep(int itemId, long fingerprint)
+    {
+        if (layout == IconLayout.PER_ID)
+        {
+            if (!new File(directory, itemId + ".png").exists())
+            {
+                return false;
+            }
+            exported.add(itemId);
+            return true;
+        }
+
+        String hash = hashName(fingerprint);
+        if (!hash.equals(previous.get(itemId)) && !hash.equals(manifest.get(itemId))
+                || !new File(storeDirectory, hash + ".png").exists()
+                || layout == IconLayout.CONTENT_LINKED && !new File(directory, itemId + ".png").exists())
+        {
+            return false;
+        }
+        record(itemId, hash);
+        return true;
+    }
+
+    /*
+     * Deletes the icon of an item a job found to be removed, unless a job
+     * sharing the exporter exported one for that ID. Content layouts drop the
+     * entry when the manifest is rewritten instead.
+     */
+    public void remove(int itemId)
+    {
+        if (layout == IconLayout.PER_ID && !exported.contains(itemId))
+        {
+            new File(directory, itemId + ".png").delete();
+        }
+    }
+
+    private static String hashName(long fingerprint)
+    {
+        return String.format("%016x", fingerprint);
+    }
+
+    private void writeIcon(int itemId, BufferedImage iconImage)
+    {
+        if (iconImage == null)
+        {
+            failed.incrementAndGet();
+            return;
+        }
+        if (layout != IconLayout.PER_ID)
+        {
+            storeIcon(itemId, iconImage);
+            return;
+        }
+
+        try
+        {
+            File outputFile = new File(directory, itemId + ".png");
+            long start = DumpMetrics.start();
+            if (ImageIO.write(iconImage, "png", outputFile))
+            {
+                written.incrementAndGet();
+                encoded(start, outputFile);
+            }
+            else
+            {
+                failed.incrementAndGet();
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to write icon for item {}", itemId, e);
+            failed.incrementAndGet();
+        }
+    }
+
+    private void storeIcon(int itemId, BufferedImage iconImage)
+    {
+        long fingerprint = Fingerprint.of(iconImage);
+        String hash = hashName(fingerprint);
+        File storedFile = new File(storeDirectory, hash + ".png");
+
+        try
+        {
+            // Only the thread that claims a hash writes the image, any others with
+            // the same pixels wait for it. The write is done outside the map, so
+            // other hashes are not held up. Failed writes are not kept, so the next
+            // item can try again.
+            CompletableFuture<Boolean> claim = new CompletableFuture<>();
+            CompletableFuture<Boolean> writer = storedHashes.putIfAbsent(fingerprint, claim);
+            boolean saved = false;
+            if (writer == null)
+            {
+                try
+                {
+                    saved = writeStored(storedFile, iconImage);
+                }
+                finally
+                {
+                    if (!saved)
+                    {
+                        storedHashes.remove(fingerprint, claim);
+                    }
+                    claim.complete(saved);
+                }
+            }
+            else
+            {
+                saved = writer.join();
+            }
+            if (!saved)
+            {
+                failed.incrementAndGet();
+                return;
+            }
+
+            if (layout == IconLayout.CONTENT_LINKED)
+            {
+                linkIcon(itemId, storedFile);
+            }
+
+            stored.incrementAndGet();
+            record(itemId, hash);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to link icon for item {}", itemId, e);
+            failed.incrementAndGet();
+        }
+    }
+
+    private void record(int itemId, String hash)
+    {
+        if (!hash.equals(manifest.put(itemId, hash)))
+        {
+            synchronized (this)
+            {
+                manifestLog.println(itemId + " " + hash);
+                manifestLog.flush();
+            }
+        }
+    }
+
+    private boolean writeStored(File storedFile, BufferedImage iconImage)
+    {
+        // Written by an earlier dump, the name is the content so it is still valid
+        if (storedFile.exists())
+        {
+            return true;
+        }
+
+        File tempFile = new File(storedFile.getPath() + ".tmp");
+        try
+        {
+            long start = DumpMetrics.start();
+            if (!ImageIO.write(iconImage, "png", tempFile))
+            {
+                return false;
+            }
+            Files.move(tempFile.toPath(), storedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            written.incrementAndGet();
+            encoded(start, storedFile);
+            return true;
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to write icon {}", storedFile, e);
+            return false;
+        }
+    }
+
+    private void encoded(long start, File outputFile)
+    {
+        DumpMetrics metrics = this.metrics;
+        if (metrics != null)
+        {
+            metrics.record(DumpMetrics.Phase.ENCODE, start);
+            metrics.iconEncoded();
+            metrics.bytesWritten(outputFile.length());
+        }
+    }
+
+    private void linkIcon(int itemId, File storedFile) throws IOException
+    {
+        File linkFile = new File(directory, itemId + ".png");
+        Files.deleteIfExists(linkFile.toPath());
+        try
+        {
+            Files.createLink(linkFile.toPath(), storedFile.toPath());
+        }
+        catch (UnsupportedOperationException | IOException e)
+        {
+            // File systems without hard links get a copy instead
+            Files.copy(storedFile.toPath(), linkFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void openManifest()
+    {
+        storeDirectory.mkdirs();
+        try
+        {
+            // The last finished manifest, and anything logged since by an unfinished
+            // dump, which a resumed dump does not capture again
+            File manifestFile = new File(directory, MANIFEST);
+            if (manifestFile.exists())
+            {
+                try (JsonReader in = new JsonReader(new FileReader(manifestFile)))
+                {
+                    in.beginObject();
+                    while (in.hasNext())
+                    {
+                        int itemId = Integer.parseInt(in.nextName());
+                        previous.put(itemId, in.nextString());
+                    }
+                    in.endObject();
+                }
+            }
+
+            File logFile = new File(directory, MANIFEST_LOG);
+            if (logFile.exists())
+            {
+                try (BufferedReader in = new BufferedReader(new FileReader(logFile)))
+                {
+                    String line;
+                    while ((line = in.readLine()) != null)
+                    {
+                        String[] entry = line.split(" ");
+                        if (entry.length == 2)
+                        {
+                            manifest.put(Integer.parseInt(entry[0]), entry[1]);
+                        }
+                    }
+                }
+            }
+            manifestLog = new PrintWriter(new BufferedWriter(new FileWriter(logFile, true)));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            throw new IllegalStateException("Failed to open icon manifest in " + directory, e);
+        }
+    }
+
+    /*
+     * Replaces the entries of the IDs the completed dump covered in
+     * manifest.json with its own, then deletes what only dropped entries used
+     */
+    private void writeManifest() throws IOException
+    {
+        Map<Integer, String> entries = new TreeMap<>(manifest);
+        for (Map.Entry<Integer, String> entry : previous.entrySet())
+        {
+            if (!covers(entry.getKey()))
+            {
+                entries.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+
+        File manifestFile = new File(directory, MANIFEST);
+        File tempFile = new File(directory, MANIFEST + ".tmp");
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(tempFile)))
+        {
+            out.write("{");
+            boolean first = true;
+            for (Map.Entry<Integer, String> entry : entries.entrySet())
+            {
+                if (!first)
+                {
+                    out.write(",");
+                }
+                first = false;
+                out.write("\"" + entry.getKey() + "\":\"" + entry.getValue() + "\"");
+            }
+            out.write("}");
+        }
+        Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(new File(directory, MANIFEST_LOG).toPath());
+
+        int removed = 0;
+        if (layout == IconLayout.CONTENT_LINKED)
+        {
+            for (int itemId : previous.keySet())
+            {
+                if (covers(itemId) && !entries.containsKey(itemId) && Files.deleteIfExists(new File(directory, itemId + ".png").toPath()))
+                {
+                    removed++;
+                }
+            }
+        }
+        Set<String> used = new HashSet<>(entries.values());
+        File[] storedFiles = storeDirectory.listFiles((dir, name) -> name.endsWith(".png"));
+        if (storedFiles != null)
+        {
+            for (File storedFile : storedFiles)
+            {
+                String name = storedFile.getName();
+                if (!used.contains(name.substring(0, name.length() - 4)) && storedFile.delete())
+                {
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0)
+        {
+            log.info("Removed {} icon files no longer in {}", removed, manifestFile);
+        }
+    }
+
+    /*
+     * Stops accepting icons. The returned report completes once every icon that
+     * was already submitted has been written. If the dump is complete the
+     * manifest is rewritten from this dump's entries, otherwise they stay in the
+     * log for the dump to resume. Jobs sharing the exporter finish together, the
+     * first call decides.
+     */
+    public synchronized CompletableFuture<IconExportReport> finish(boolean complete)
+    {
+        if (finishing)
+        {
+            return report;
+        }
+        this.complete = complete;
+        finishing = true;
+        executor.shutdown();
+        if (pending.get() == 0)
+        {
+            complete();
+        }
+        return report;
+    }
+
+    private synchronized void complete()
+    {
+        if (report.isDone())
+        {
+            return;
+        }
+
+        if (layout != IconLayout.PER_ID)
+        {
+            try
+            {
+                manifestLog.close();
+                if (complete)
+                {
+                    writeManifest();
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to write icon manifest", e);
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        report.complete(new IconExportReport(written.get(), Math.max(0, stored.get() - written.get()), failed.get(), elapsedMillis));
+    }
+
+    public static int defaultThreads()
+    {
+        return DumpPipeline.defaultThreads();
+    }
+}
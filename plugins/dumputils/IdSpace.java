@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+
+/*
+ * The IDs of one definition type that are worth dumping. The number of IDs is
+ * read from the definition archive in the game cache, and IDs found to have no
+ * definition or a "null" name are remembered in a bitmap saved between dumps,
+ * so later dumps skip them without fetching the definition. The bitmap is
+ * thrown away whenever the game revision or the list of definition file IDs
+ * changes, as a cache update can add a definition at an ID that had none
+ * without changing the number of IDs. An update that only fills in a "null"
+ * placeholder changes neither, so the dumping plugins have a rescan command
+ * that discards the bitmap.
+ * Only used on the client thread.
+ */
+@Slf4j
+public class IdSpace
+{
+    // Archives of the config index holding each definition type
+    public static final int ITEMS = 10;
+    public static final int NPCS = 9;
+
+    private static final int MAGIC = 0x4f534944; // "OSID"
+    private static final int VERSION = 2;
+
+    private final File file;
+    private final int revision;
+    @Getter
+    private final int size;
+    private final int fileIdsHash;
+    private final BitSet empty;
+    private boolean modified = false;
+
+    private IdSpace(File file, int revision, int size, int fileIdsHash, BitSet empty)
+    {
+        this.file = file;
+        this.revision = revision;
+        this.size = size;
+        this.fileIdsHash = fileIdsHash;
+        this.empty = empty;
+    }
+
+    /*
+     * Reads the file IDs of the archive from the client, and the bitmap saved
+     * in file if it was saved for the same revision and file IDs
+     */
+    public static IdSpace load(Client client, int archive, File file)
+    {
+        int revision = client.getRevision();
+        int[] fileIds = client.getIndexConfig().getFileIds(archive);
+        int fileIdsHash = Arrays.hashCode(fileIds);
+        int size = 0;
+        for (int id : fileIds)
+        {
+            size = Math.max(size, id + 1);
+        }
+
+        BitSet empty = new BitSet(size);
+        if (file.exists())
+        {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+            {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION && in.readInt() == revision && in.readInt() == size
+                        && in.readInt() == fileIdsHash)
+                {
+                    long[] words = new long[in.readInt()];
+                    for (int i = 0; i < words.length; i++)
+                    {
+                        words[i] = in.readLong();
+                    }
+                    empty = BitSet.valueOf(words);
+                }
+                else
+                {
+                    log.debug(">>> Game cache has changed, discarding " + file);
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to load {}", file, e);
+            }
+        }
+        return new IdSpace(file, revision, size, fileIdsHash, empty);
+    }
+
+    /*
+     * Deletes the bitmap saved in file, so the next dump fetches every ID again
+     */
+    public static void discard(File file)
+    {
+        try
+        {
+            Files.deleteIfExists(file.toPath());
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to delete {}", file, e);
+        }
+    }
+
+    /*
+     * Returns end, or the size of the ID space if end is 0
+     */
+    public int resolveEnd(int end)
+    {
+        return end > 0 ? end : size;
+    }
+
+    /*
+     * Returns true if an earlier dump found id to be empty
+     */
+    public boolean isEmpty(int id)
+    {
+        return empty.get(id);
+    }
+
+    public void markEmpty(int id)
+    {
+        if (!empty.get(id))
+        {
+            empty.set(id);
+            modified = true;
+        }
+    }
+
+    public static boolean isNullName(String name)
+    {
+        return name == null || name.equalsIgnoreCase("null");
+    }
+
+    /*
+     * Saves the bitmap if any IDs were marked empty since it was loaded
+     */
+    public void save()
+    {
+        if (!modified)
+        {
+            return;
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+            {
+                long[] words = empty.toLongArray();
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(revision);
+                out.writeInt(size);
+                out.writeInt(fileIdsHash);
+                out.writeInt(words.length);
+                for (long word : words)
+                {
+                    out.writeLong(word);
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to save {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Client;
+import net.runelite.api.events.ClientTick;
+import net.runelite.api.events.CommandExecuted;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.ui.overlay.OverlayManager;
+
+/*
+ * Shared by the dumping plugins, which register their item outputs as sinks
+ * while they are enabled. All dumps run on one scheduler, and ::dumpall writes
+ * every registered output in a single pass over the item IDs. The running
+ * dump's metrics are shown in an overlay.
+ */
+@Slf4j
+@Singleton
+public class ItemDumpEngine
+{
+    private static final String NAME = "items";
+
+    private final Client client;
+    private final ClientThread clientThread;
+    private final ItemManager itemManager;
+    private final EventBus eventBus;
+    private final OverlayManager overlayManager;
+    private final DumpOverlay overlay;
+    private final Map<String, ItemSink> sinks = new LinkedHashMap<>();
+    private DumpScheduler scheduler;
+    private IntSupplier idsPerTick;
+
+    @Inject
+    ItemDumpEngine(Client client, ClientThread clientThread, ItemManager itemManager, EventBus eventBus, OverlayManager overlayManager)
+    {
+        this.client = client;
+        this.clientThread = clientThread;
+        this.itemManager = itemManager;
+        this.eventBus = eventBus;
+        this.overlayManager = overlayManager;
+        this.overlay = new DumpOverlay(this);
+    }
+
+    public void register(String name, ItemSink sink)
+    {
+        if (sinks.isEmpty())
+        {
+            scheduler = new DumpScheduler(this::sendMessage);
+            eventBus.register(this);
+            overlayManager.add(overlay);
+        }
+        sinks.put(name, sink);
+    }
+
+    public void unregister(String name)
+    {
+        sinks.remove(name);
+        if (sinks.isEmpty() && scheduler != null)
+        {
+            // Leaves a checkpoint, so the dump can be resumed later
+            scheduler.shutDown();
+            eventBus.unregister(this);
+            overlayManager.remove(overlay);
+            scheduler = null;
+        }
+    }
+
+    public ItemSource newSource()
+    {
+        return new ItemSource(client, itemManager);
+    }
+
+    public boolean isBusy()
+    {
+        return scheduler != null && scheduler.isBusy();
+    }
+
+    public String getStatus()
+    {
+        return scheduler != null ? scheduler.getStatus() : "No dump running";
+    }
+
+    public DumpJob getCurrentJob()
+    {
+        return scheduler != null ? scheduler.getCurrentJob() : null;
+    }
+
+    public void start(DumpJob job, IntSupplier idsPerTick)
+    {
+        if (scheduler.isBusy())
+        {
+            sendMessage(scheduler.getStatus());
+            return;
+        }
+        this.idsPerTick = idsPerTick;
+        scheduler.start(job);
+    }
+
+    /*
+     * Handles the pause, resume, cancel and status arguments of a dump command
+     */
+    public void control(String argument, Supplier<DumpJob> restore, IntSupplier idsPerTick)
+    {
+        scheduler.control(argument, () ->
+        {
+            this.idsPerTick = idsPerTick;
+            return restore.get();
+        });
+    }
+
+    @Subscribe
+    public void onClientTick(ClientTick clientTick)
+    {
+        // Keeps ticking after a dump finishes, so the scheduler can report it
+        if (idsPerTick != null)
+        {
+            scheduler.tick(idsPerTick.getAsInt());
+        }
+    }
+
+    @Subscribe
+    public void onCommandExecuted(CommandExecuted commandExecuted)
+    {
+        switch (commandExecuted.getCommand())
+        {
+            case "dumpall":
+            {
+                // ::dumpall [pause|resume|cancel|status|rescan]
+                String[] arguments = commandExecuted.getArguments();
+                if (arguments.length > 0 && arguments[0].equals("rescan"))
+                {
+                    rescan();
+                }
+                else if (arguments.length > 0)
+                {
+                    control(arguments[0], this::resumeAll, this::lowestIdsPerTick);
+                }
+                else
+                {
+                    dumpAll();
+                }
+                break;
+            }
+        }
+    }
+
+    private void dumpAll()
+    {
+        log.debug(">>> Starting single pass dump of: " + sinks.keySet());
+
+        if (scheduler.isBusy())
+        {
+            sendMessage(scheduler.getStatus());
+            return;
+        }
+
+        try
+        {
+            ItemSource source = newSource();
+            List<DumpJob> jobs = new ArrayList<>();
+            for (ItemSink sink : sinks.values())
+            {
+                DumpJob job = sink.start(source);
+                if (job != null)
+                {
+                    jobs.add(job);
+                }
+            }
+            if (jobs.isEmpty())
+            {
+                sendMessage("Nothing to dump, enable a dumping plugin first");
+                return;
+            }
+            start(new ItemDumpJob(NAME, jobs), this::lowestIdsPerTick);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /*
+     * Makes the next dump fetch the item IDs earlier dumps skipped, for cache
+     * updates the saved bitmap can't detect
+     */
+    private void rescan()
+    {
+        if (scheduler.isBusy())
+        {
+            sendMessage(scheduler.getStatus());
+            return;
+        }
+        ItemSource.discardIdSpace();
+        sendMessage("The next item dump will fetch every item ID again");
+    }
+
+    private DumpJob resumeAll()
+    {
+        try
+        {
+            ItemSource source = newSource();
+            List<DumpJob> jobs = new ArrayList<>();
+            for (ItemSink sink : sinks.values())
+            {
+                DumpJob job = sink.resume(source);
+                if (job != null)
+                {
+                    jobs.add(job);
+                }
+            }
+            return jobs.isEmpty() ? null : new ItemDumpJob(NAME, jobs);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private int lowestIdsPerTick()
+    {
+        // Sinks may have been disabled since the dump started
+        return sinks.values().stream().mapToInt(ItemSink::getIdsPerTick).min().orElse(100);
+    }
+
+    public void sendMessage(String message)
+    {
+        clientThread.invokeLater(() -> client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", message, null));
+    }
+}
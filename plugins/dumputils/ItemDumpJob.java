@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.util.List;
+
+/*
+ * Runs the jobs of several item sinks in a single pass over the item IDs.
+ * Every job keeps its own range and checkpoints, this only makes sure they
+ * capture each ID together so the shared ItemSource fetches it once.
+ */
+public class ItemDumpJob extends DumpJob
+{
+    private final List<DumpJob> jobs;
+
+    public ItemDumpJob(String name, List<DumpJob> jobs)
+    {
+        super(name, firstId(jobs), lastId(jobs), firstId(jobs));
+        this.jobs = jobs;
+    }
+
+    private static int firstId(List<DumpJob> jobs)
+    {
+        return jobs.stream().mapToInt(DumpJob::getNextId).min().orElse(0);
+    }
+
+    private static int lastId(List<DumpJob> jobs)
+    {
+        return jobs.stream().mapToInt(DumpJob::getEnd).max().orElse(0);
+    }
+
+    @Override
+    public List<DumpJob> getParts()
+    {
+        return jobs;
+    }
+
+    @Override
+    protected boolean hasCapacity()
+    {
+        for (DumpJob job : jobs)
+        {
+            if (job.getNextId() < job.getEnd() && !job.hasCapacity())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void capture(int id) throws InterruptedException
+    {
+        // A resumed job may be further along than the others, it joins in once they catch up
+        for (DumpJob job : jobs)
+        {
+            if (job.getNextId() == id && id < job.getEnd())
+            {
+                job.captureNext();
+            }
+        }
+    }
+
+    @Override
+    protected void checkpoint(int resumeId)
+    {
+        // Each job saves its own checkpoints
+    }
+
+    @Override
+    protected void finish(boolean complete)
+    {
+        for (DumpJob job : jobs)
+        {
+            job.finish(complete);
+        }
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return jobs.stream().allMatch(DumpJob::isDone);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import net.runelite.api.Client;
+import net.runelite.api.ItemComposition;
+import net.runelite.client.game.ItemManager;
+
+/*
+ * Where item dump jobs fetch item compositions and icons from. Jobs run in
+ * the same pass share a source, so each composition and icon is only fetched
+ * once however many outputs need it. Only used on the client thread.
+ */
+public class ItemSource
+{
+    private static final String ICON_DIRECTORY = "items-icons";
+    private static final File ID_SPACE_FILE = new File("items-id-space.dat");
+
+    private final Client client;
+    private final ItemManager itemManager;
+
+    private int compositionId = -1;
+    private ItemComposition composition;
+    private int iconId = -1;
+    private BufferedImage icon;
+    private IconExporter iconExporter;
+    private int submittedIconId = -1;
+    private IdSpace idSpace;
+
+    public ItemSource(Client client, ItemManager itemManager)
+    {
+        this.client = client;
+        this.itemManager = itemManager;
+    }
+
+    /*
+     * Returns the item ID space, loaded the first time a job asks for it
+     */
+    public IdSpace getIdSpace()
+    {
+        if (idSpace == null)
+        {
+            idSpace = IdSpace.load(client, IdSpace.ITEMS, ID_SPACE_FILE);
+        }
+        return idSpace;
+    }
+
+    /*
+     * Forgets the item IDs earlier dumps found to be empty
+     */
+    public static void discardIdSpace()
+    {
+        IdSpace.discard(ID_SPACE_FILE);
+    }
+
+    public ItemComposition getItemDefinition(int itemId)
+    {
+        if (itemId != compositionId)
+        {
+            composition = client.getItemDefinition(itemId);
+            compositionId = itemId;
+        }
+        return composition;
+    }
+
+    public BufferedImage getImage(int itemId)
+    {
+        if (itemId != iconId)
+        {
+            icon = itemManager.getImage(itemId);
+            iconId = itemId;
+        }
+        return icon;
+    }
+
+    /*
+     * Returns the icon exporter shared by every job of the pass, so jobs that
+     * all want icons still encode each of them once. The first job to ask
+     * picks the thread count and layout.
+     */
+    public IconExporter getIconExporter(int threads, IconLayout layout)
+    {
+        if (iconExporter == null)
+        {
+            iconExporter = new IconExporter(ICON_DIRECTORY, threads, layout);
+        }
+        return iconExporter;
+    }
+
+    /*
+     * Hands the icon of itemId to the shared exporter, unless another job already has
+     */
+    public void submitIcon(int itemId) throws InterruptedException
+    {
+        if (itemId != submittedIconId)
+        {
+            iconExporter.submit(itemId, getImage(itemId));
+            submittedIconId = itemId;
+        }
+    }
+}
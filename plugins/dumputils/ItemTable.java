@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import net.runelite.api.ItemComposition;
+
+/*
+ * The exported item fields for a range of item IDs, stored as one primitive
+ * column per field and indexed by item ID minus the first ID of the range.
+ * Rows are captured on the client thread and read by the writer threads. A
+ * row is published by handing its ID to the pipeline after capture(), the
+ * executor's queue orders the writes before the reads, and it must not be
+ * changed after that. The boolean fields are bits of one int per row rather
+ * than BitSets, whose rows share words, so capturing the next row never
+ * writes memory a writer thread is reading.
+ */
+public class ItemTable
+{
+    private static final int PRESENT = 1;
+    private static final int MEMBERS = 1 << 1;
+    private static final int TRADEABLE = 1 << 2;
+    private static final int STACKABLE = 1 << 3;
+    private static final int NOTED = 1 << 4;
+    private static final int NOTEABLE = 1 << 5;
+    private static final int PLACEHOLDER = 1 << 6;
+    private static final int EQUIPABLE = 1 << 7;
+
+    private final int start;
+    private final int end;
+    private final int[] flags;
+    private final String[] names;
+    private final int[] cost;
+    private final int[] linkedId;
+    private final int[] lowAlch;
+    private final int[] highAlch;
+
+    // Names are shared between rows, noted and placeholder items reuse the
+    // name of the item they are linked to. Only used on the client thread.
+    private final Map<String, String> namePool = new HashMap<>();
+
+    /*
+     * A table for the item IDs in [start, end)
+     */
+    public ItemTable(int start, int end)
+    {
+        int size = Math.max(0, end - start);
+        this.start = start;
+        this.end = end;
+        this.flags = new int[size];
+        this.names = new String[size];
+        this.cost = new int[size];
+        this.linkedId = new int[size];
+        this.lowAlch = new int[size];
+        this.highAlch = new int[size];
+    }
+
+    public void capture(int itemId, ItemComposition itemComposition)
+    {
+        int row = itemId - start;
+        int rowFlags = PRESENT;
+
+        String name = itemComposition.getName();
+        names[row] = name == null ? null : namePool.computeIfAbsent(name, n -> n);
+        if (itemComposition.isMembers())
+        {
+            rowFlags |= MEMBERS;
+        }
+        if (itemComposition.isTradeable())
+        {
+            rowFlags |= TRADEABLE;
+        }
+        if (itemComposition.isStackable())
+        {
+            rowFlags |= STACKABLE;
+        }
+        linkedId[row] = itemComposition.getLinkedNoteId();
+
+        // Determine cost, then alchemy values
+        int price = itemComposition.getPrice();
+        cost[row] = price;
+        lowAlch[row] = (int)Math.floor(price * 0.4);
+        highAlch[row] = (int)Math.floor(price * 0.6);
+
+        // Determine if item is noted... According to RuneLite API:
+        // 799 with be returned if the item is noted
+        int note = itemComposition.getNote();
+        if (note == 799)
+        {
+            rowFlags |= NOTED;
+        }
+        // If the item itself is noted or linked ID is noted, it must be notable!
+        if (note == 799 || linkedId[row] != -1)
+        {
+            rowFlags |= NOTEABLE;
+        }
+
+        // Populate placeholder boolean (is the item ID a placeholder)
+        // 14401 if placeholder, -1 otherwise
+        if (itemComposition.getPlaceholderTemplateId() == 14401)
+        {
+            rowFlags |= PLACEHOLDER;
+        }
+
+        // If inventoryActions contains "Wear", "Wield" or "Equip" it is deemed equipable
+        String[] inventoryActions = itemComposition.getInventoryActions();
+        if (inventoryActions != null &&
+                (Arrays.asList(inventoryActions).contains("Wear") ||
+                        Arrays.asList(inventoryActions).contains("Wield") ||
+                        Arrays.asList(inventoryActions).contains("Equip")))
+        {
+            rowFlags |= EQUIPABLE;
+        }
+
+        flags[row] = rowFlags;
+    }
+
+    public int size()
+    {
+        return flags.length;
+    }
+
+    public boolean contains(int itemId)
+    {
+        return itemId >= start && itemId < end && (flags[itemId - start] & PRESENT) != 0;
+    }
+
+    public String getName(int itemId)
+    {
+        return names[itemId - start];
+    }
+
+    public boolean isMembers(int itemId)
+    {
+        return hasFlag(itemId, MEMBERS);
+    }
+
+    public boolean isTradeable(int itemId)
+    {
+        return hasFlag(itemId, TRADEABLE);
+    }
+
+    public boolean isStackable(int itemId)
+    {
+        return hasFlag(itemId, STACKABLE);
+    }
+
+    public boolean isNoted(int itemId)
+    {
+        return hasFlag(itemId, NOTED);
+    }
+
+    public boolean isNoteable(int itemId)
+    {
+        return hasFlag(itemId, NOTEABLE);
+    }
+
+    public boolean isPlaceholder(int itemId)
+    {
+        return hasFlag(itemId, PLACEHOLDER);
+    }
+
+    public boolean isEquipable(int itemId)
+    {
+        return hasFlag(itemId, EQUIPABLE);
+    }
+
+    public int getCost(int itemId)
+    {
+        return cost[itemId - start];
+    }
+
+    public int getLinkedId(int itemId)
+    {
+        return linkedId[itemId - start];
+    }
+
+    public int getLowAlch(int itemId)
+    {
+        return lowAlch[itemId - start];
+    }
+
+    public int getHighAlch(int itemId)
+    {
+        return highAlch[itemId - start];
+    }
+
+    private boolean hasFlag(int itemId, int flag)
+    {
+        return (flags[itemId - start] & flag) != 0;
+    }
+}
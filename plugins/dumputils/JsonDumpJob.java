@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * A dump job writing a single JSON object keyed by ID, with optional item
+ * icons. The output is written to a temporary file that replaces outputFile
+ * once the dump completes, and checkpoints record how much of it is valid.
+ */
+@Slf4j
+public abstract class JsonDumpJob extends DumpJob
+{
+    private static final String POSITION = "position";
+    private static final String COMPRESSION = "compression";
+
+    @Value
+    private static class JsonEntry
+    {
+        int id;
+        byte[] json;
+    }
+
+    private final File outputFile;
+    private final File tempFile;
+    private final OutputCompression compression;
+    private final JsonStreamWriter writer;
+    private final long startPosition;
+    private final DumpPipeline<JsonEntry> pipeline;
+    private final IconExporter iconExporter;
+    private volatile boolean jsonDone = false;
+    private volatile boolean iconsDone = false;
+
+    /*
+     * Starts a new dump, or resumes one if checkpoint is not null. outputFile
+     * gets the extension of the compression, a resumed dump keeps the
+     * compression it was started with.
+     */
+    protected JsonDumpJob(String name, File outputFile, int start, int end, DumpCheckpoint checkpoint, IconExporter iconExporter,
+                          OutputCompression compression, int compressionLevel) throws IOException
+    {
+        super(name, start, end, checkpoint != null ? checkpoint.getResumeId() : start);
+        if (checkpoint == null)
+        {
+            DumpCheckpoint.delete(name);
+        }
+
+        this.compression = checkpoint != null
+                ? OutputCompression.valueOf(checkpoint.getString(COMPRESSION, OutputCompression.NONE.name()))
+                : compression;
+        this.outputFile = this.compression.apply(outputFile);
+        this.tempFile = new File(this.outputFile.getPath() + ".tmp");
+        this.startPosition = checkpoint != null ? checkpoint.getLong(POSITION) : 0;
+        this.writer = new JsonStreamWriter(tempFile, startPosition, this.compression, compressionLevel);
+        this.pipeline = new DumpPipeline<>(name, this::write);
+        this.iconExporter = iconExporter;
+        if (iconExporter != null)
+        {
+            iconExporter.reportTo(getMetrics());
+            iconExporter.cover(start, end);
+        }
+    }
+
+    /*
+     * Serialises an entry on the pipeline workers, entries are written in the order they are submitted
+     */
+    protected void submit(int id, Callable<String> serializer) throws InterruptedException
+    {
+        pipeline.submit(() ->
+        {
+            long start = DumpMetrics.start();
+            JsonEntry entry = new JsonEntry(id, JsonStreamWriter.encode(serializer.call()));
+            getMetrics().record(DumpMetrics.Phase.SERIALIZE, start);
+            return entry;
+        });
+    }
+
+    private void write(JsonEntry entry) throws IOException
+    {
+        long start = DumpMetrics.start();
+        writer.writeEntry(entry.getId(), entry.getJson());
+        getMetrics().record(DumpMetrics.Phase.WRITE, start);
+        getMetrics().exported();
+    }
+
+    /*
+     * Called on the writer thread once outputFile has been written in full
+     */
+    protected void completed(File outputFile) throws IOException
+    {
+    }
+
+    protected OutputCompression getCompression()
+    {
+        return compression;
+    }
+
+    protected IconExporter getIconExporter()
+    {
+        return iconExporter;
+    }
+
+    @Override
+    protected boolean hasCapacity()
+    {
+        return pipeline.hasCapacity() && (iconExporter == null || iconExporter.hasCapacity());
+    }
+
+    @Override
+    protected void checkpoint(int resumeId)
+    {
+        pipeline.barrier(() -> saveCheckpoint(resumeId));
+    }
+
+    private void saveCheckpoint(int resumeId)
+    {
+        try
+        {
+            if (iconExporter != null)
+            {
+                iconExporter.awaitCompletedBefore(resumeId);
+            }
+            writer.sync();
+            newCheckpoint(resumeId)
+                    .setLong(POSITION, writer.getPosition())
+                    .setString(COMPRESSION, compression.name())
+                    .save();
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to save checkpoint for {}", getName(), e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void finish(boolean complete)
+    {
+        final int resumeId = getNextId();
+        pipeline.finish(() ->
+        {
+            try
+            {
+                if (complete)
+                {
+                    writer.close();
+                    getMetrics().bytesWritten(writer.getPosition() - startPosition);
+                    Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    if (compression != OutputCompression.NONE)
+                    {
+                        DumpOutputStream.writeChecksum(outputFile, writer.getChecksum());
+                    }
+                    DumpCheckpoint.delete(getName());
+                    log.info("Finished writing {}", outputFile);
+                    completed(outputFile);
+                }
+                else
+                {
+                    saveCheckpoint(resumeId);
+                    writer.closePartial();
+                    getMetrics().bytesWritten(writer.getPosition() - startPosition);
+                }
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+            finally
+            {
+                jsonDone = true;
+            }
+        });
+
+        if (iconExporter != null)
+        {
+            iconExporter.finish(complete).thenAccept(report ->
+            {
+                log.info("Item icon dump finished: {}", report);
+                iconsDone = true;
+            });
+        }
+        else
+        {
+            iconsDone = true;
+        }
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return jsonDone && iconsDone;
+    }
+}
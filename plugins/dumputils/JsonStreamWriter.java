@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.Deflater;
+
+/*
+ * Streams a JSON object keyed by ID straight to disk, one already serialised
+ * entry at a time, giving the same output as serialising a map of every entry
+ * in ascending ID order. A partly written file can be reopened at a position
+ * saved in a checkpoint and appended to.
+ */
+public class JsonStreamWriter implements Closeable
+{
+    // Same encoding FileWriter uses
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final DumpOutputStream out;
+    private boolean firstEntry;
+
+    public JsonStreamWriter(File file) throws IOException
+    {
+        this(file, 0);
+    }
+
+    public JsonStreamWriter(File file, long resumePosition) throws IOException
+    {
+        this(file, resumePosition, OutputCompression.NONE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /*
+     * Reopens a file written up to resumePosition (as returned by getPosition()),
+     * discarding anything written after it. 0 starts a new file.
+     */
+    public JsonStreamWriter(File file, long resumePosition, OutputCompression compression, int level) throws IOException
+    {
+        this.out = new DumpOutputStream(file, compression, level, resumePosition);
+        this.firstEntry = out.getWritten() <= 1;
+
+        if (out.getWritten() == 0)
+        {
+            out.write(encode("{"));
+        }
+    }
+
+    /*
+     * Writes "<id>":<json> and returns the offset of json before compression
+     */
+    public long writeEntry(int id, byte[] json) throws IOException
+    {
+        String key = (firstEntry ? "" : ",") + "\"" + id + "\":";
+        firstEntry = false;
+        out.write(encode(key));
+
+        long offset = out.getWritten();
+        out.write(json);
+        return offset;
+    }
+
+    /*
+     * Returns the position to resume from, only valid straight after sync()
+     */
+    public long getPosition()
+    {
+        return out.getFilePosition();
+    }
+
+    /*
+     * Returns the SHA-256 of the file, once it has been closed
+     */
+    public String getChecksum()
+    {
+        return out.getChecksum();
+    }
+
+    /*
+     * Forces everything written so far to disk, call before saving a checkpoint
+     */
+    public void sync() throws IOException
+    {
+        out.sync();
+    }
+
+    public static byte[] encode(String json)
+    {
+        return json.getBytes(CHARSET);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            out.write(encode("}"));
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /*
+     * Closes without ending the JSON object, so the file can be resumed later
+     */
+    public void closePartial() throws IOException
+    {
+        out.close();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.dumputils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/*
+ * How dump output files are compressed while they are written
+ */
+@Getter
+@RequiredArgsConstructor
+public enum OutputCompression
+{
+    NONE("None", ""),
+    // Written as <file>.gz, with a <file>.gz.sha256 checksum
+    GZIP("Gzip", ".gz");
+
+    private final String name;
+    private final String extension;
+
+    /*
+     * Returns the name file is written under with this compression
+     */
+    public File apply(File file)
+    {
+        return extension.isEmpty() ? file : new File(file.getPath() + extension);
+    }
+
+    public String apply(String fileName)
+    {
+        return fileName + extension;
+    }
+
+    /*
+     * Opens a file written with this compression for reading, decompressing it on the fly
+     */
+    public Reader openReader(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        if (this == GZIP)
+        {
+            in = new GZIPInputStream(in, 65536);
+        }
+        return new InputStreamReader(in, Charset.defaultCharset());
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
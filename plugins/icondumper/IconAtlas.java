@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.icondumper;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import javax.imageio.ImageIO;
+import lombok.Getter;
+import lombok.Value;
+
+/*
+ * Packs icons into square sheet images, filling shelves left to right and top
+ * to bottom. Only the sheet being filled is held in memory, it is written out
+ * as soon as the next icon does not fit and a new sheet is started.
+ */
+class IconAtlas
+{
+    @Value
+    static class Slot
+    {
+        int sheet;
+        int x;
+        int y;
+        int width;
+        int height;
+    }
+
+    private final File directory;
+    private final int size;
+    @Getter
+    private int sheet;
+    @Getter
+    private int x;
+    @Getter
+    private int y;
+    @Getter
+    private int shelfHeight;
+    @Getter
+    private long bytesWritten;
+    private BufferedImage image;
+    private boolean dirty = false;
+
+    IconAtlas(File directory, int size) throws IOException
+    {
+        this(directory, size, 0, 0, 0, 0);
+    }
+
+    /*
+     * Continues packing at a position returned by the getters, reloading the
+     * sheet that was being filled from the last flush()
+     */
+    IconAtlas(File directory, int size, int sheet, int x, int y, int shelfHeight) throws IOException
+    {
+        this.directory = directory;
+        this.size = size;
+        this.sheet = sheet;
+        this.x = x;
+        this.y = y;
+        this.shelfHeight = shelfHeight;
+        this.image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+
+        directory.mkdirs();
+        File sheetFile = sheetFile(sheet);
+        if ((x > 0 || y > 0) && sheetFile.exists())
+        {
+            BufferedImage saved = ImageIO.read(sheetFile);
+            if (saved != null)
+            {
+                draw(saved, 0, 0);
+            }
+        }
+    }
+
+    /*
+     * Places icon in the atlas and returns where it went, or null if it is larger than a sheet
+     */
+    Slot add(BufferedImage icon) throws IOException
+    {
+        int width = icon.getWidth();
+        int height = icon.getHeight();
+        if (width > size || height > size)
+        {
+            return null;
+        }
+
+        if (x + width > size)
+        {
+            x = 0;
+            y += shelfHeight;
+            shelfHeight = 0;
+        }
+        if (y + height > size)
+        {
+            writeSheet();
+            sheet++;
+            x = 0;
+            y = 0;
+            shelfHeight = 0;
+            image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        draw(icon, x, y);
+        Slot slot = new Slot(sheet, x, y, width, height);
+        x += width;
+        shelfHeight = Math.max(shelfHeight, height);
+        dirty = true;
+        return slot;
+    }
+
+    /*
+     * Writes the sheet being filled as it is so far, call before saving a checkpoint
+     */
+    void flush() throws IOException
+    {
+        if (dirty)
+        {
+            writeSheet();
+        }
+    }
+
+    /*
+     * Returns the number of sheets that have an icon on them
+     */
+    int getSheetCount()
+    {
+        return x == 0 && y == 0 ? sheet : sheet + 1;
+    }
+
+    private void draw(BufferedImage source, int left, int top)
+    {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setComposite(AlphaComposite.Src);
+        graphics.drawImage(source, left, top, null);
+        graphics.dispose();
+    }
+
+    private void writeSheet() throws IOException
+    {
+        File sheetFile = sheetFile(sheet);
+        File tempFile = new File(directory, sheetFile.getName() + ".tmp");
+        if (!ImageIO.write(image, "png", tempFile))
+        {
+            throw new IOException("No PNG writer available");
+        }
+        bytesWritten += tempFile.length();
+        Files.move(tempFile.toPath(), sheetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private File sheetFile(int index)
+    {
+        return new File(directory, "sheet-" + index + ".png");
+    }
+}
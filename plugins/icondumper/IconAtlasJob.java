@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.icondumper;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ItemComposition;
+import net.runelite.client.plugins.dumputils.DumpCheckpoint;
+import net.runelite.client.plugins.dumputils.DumpJob;
+import net.runelite.client.plugins.dumputils.DumpMetrics;
+import net.runelite.client.plugins.dumputils.DumpPipeline;
+import net.runelite.client.plugins.dumputils.IdSpace;
+import net.runelite.client.plugins.dumputils.ItemSource;
+import net.runelite.client.plugins.dumputils.JsonStreamWriter;
+
+/*
+ * Dumps item icons packed into sheet images, with an index giving the sheet
+ * and rectangle of each item ID. Packing is done in ID order on a single
+ * pipeline thread, so the same items always give the same atlas. The sheets
+ * and index are written to a staging directory that replaces the atlas
+ * directory once the dump completes, so the index and sheets in it always
+ * belong to the same dump.
+ */
+@Slf4j
+class IconAtlasJob extends DumpJob
+{
+    static final String NAME = "items-atlas";
+
+    private static final File DIRECTORY = new File(NAME);
+    private static final File STAGING_DIRECTORY = new File(NAME + ".tmp");
+    private static final File OLD_DIRECTORY = new File(NAME + ".old");
+    private static final File INDEX_FILE = new File(STAGING_DIRECTORY, "atlas.json");
+    private static final int SHEET_SIZE = 1024;
+
+    private static final String POSITION = "position";
+    private static final String SHEET = "sheet";
+    private static final String X = "x";
+    private static final String Y = "y";
+    private static final String SHELF_HEIGHT = "shelfHeight";
+
+    @Value
+    private static class AtlasIcon
+    {
+        int id;
+        BufferedImage image;
+    }
+
+    private final ItemSource source;
+    private final IconAtlas atlas;
+    private final JsonStreamWriter index;
+    private final long indexStart;
+    private final DumpPipeline<AtlasIcon> pipeline;
+    private volatile boolean done = false;
+
+    static IconAtlasJob start(ItemSource source, int start, int end) throws IOException
+    {
+        DumpCheckpoint.delete(NAME);
+        deleteDirectory(STAGING_DIRECTORY);
+        return new IconAtlasJob(source, start, end, null);
+    }
+
+    /*
+     * Returns the job saved in the last checkpoint, or null if there is nothing to resume
+     */
+    static IconAtlasJob resume(ItemSource source) throws IOException
+    {
+        DumpCheckpoint checkpoint = DumpCheckpoint.load(NAME);
+        if (checkpoint == null)
+        {
+            return null;
+        }
+        return new IconAtlasJob(source, checkpoint.getStart(), checkpoint.getEnd(), checkpoint);
+    }
+
+    private IconAtlasJob(ItemSource source, int start, int end, DumpCheckpoint checkpoint) throws IOException
+    {
+        super(NAME, start, end, checkpoint != null ? checkpoint.getResumeId() : start);
+        this.source = source;
+
+        if (checkpoint != null)
+        {
+            this.atlas = new IconAtlas(STAGING_DIRECTORY, SHEET_SIZE,
+                    (int) checkpoint.getLong(SHEET),
+                    (int) checkpoint.getLong(X),
+                    (int) checkpoint.getLong(Y),
+                    (int) checkpoint.getLong(SHELF_HEIGHT));
+            this.indexStart = checkpoint.getLong(POSITION);
+            this.index = new JsonStreamWriter(INDEX_FILE, indexStart);
+        }
+        else
+        {
+            this.atlas = new IconAtlas(STAGING_DIRECTORY, SHEET_SIZE);
+            this.indexStart = 0;
+            this.index = new JsonStreamWriter(INDEX_FILE);
+        }
+
+        // Drawing into the sheet is cheap, the sheet PNGs are encoded as they
+        // fill up, so a single thread keeps up with the client
+        this.pipeline = new DumpPipeline<>(NAME, 1, 1024, this::pack);
+    }
+
+    @Override
+    protected boolean hasCapacity()
+    {
+        return pipeline.hasCapacity();
+    }
+
+    @Override
+    protected void capture(int itemId) throws InterruptedException
+    {
+        final DumpMetrics metrics = getMetrics();
+
+        // Skip IDs an earlier dump found to be empty, without fetching them again
+        final IdSpace idSpace = source.getIdSpace();
+        if (idSpace.isEmpty(itemId))
+        {
+            metrics.skipped();
+            return;
+        }
+
+        long start = DumpMetrics.start();
+        ItemComposition itemComposition = source.getItemDefinition(itemId);
+        if (itemComposition == null || IdSpace.isNullName(itemComposition.getName()))
+        {
+            // Placeholder icons would only fill up the sheets
+            metrics.record(DumpMetrics.Phase.FETCH, start);
+            idSpace.markEmpty(itemId);
+            metrics.skipped();
+            return;
+        }
+        BufferedImage image = source.getImage(itemId);
+        metrics.record(DumpMetrics.Phase.FETCH, start);
+        if (image != null)
+        {
+            pipeline.submit(() -> new AtlasIcon(itemId, image));
+        }
+    }
+
+    private void pack(AtlasIcon icon) throws IOException
+    {
+        final DumpMetrics metrics = getMetrics();
+        long start = DumpMetrics.start();
+        IconAtlas.Slot slot = atlas.add(icon.getImage());
+        metrics.record(DumpMetrics.Phase.ENCODE, start);
+        if (slot == null)
+        {
+            log.warn("Icon for item {} is too large for an atlas sheet", icon.getId());
+            metrics.skipped();
+            return;
+        }
+        metrics.iconEncoded();
+
+        start = DumpMetrics.start();
+
+        String json = String.format("{\"sheet\":%d,\"x\":%d,\"y\":%d,\"width\":%d,\"height\":%d}",
+                slot.getSheet(), slot.getX(), slot.getY(), slot.getWidth(), slot.getHeight());
+        index.writeEntry(icon.getId(), JsonStreamWriter.encode(json));
+        metrics.record(DumpMetrics.Phase.WRITE, start);
+        metrics.exported();
+    }
+
+    @Override
+    protected void checkpoint(int resumeId)
+    {
+        pipeline.barrier(() -> saveCheckpoint(resumeId));
+    }
+
+    private void saveCheckpoint(int resumeId)
+    {
+        try
+        {
+            // The sheet being filled is written as it is, and read back on resume
+            atlas.flush();
+            index.sync();
+            newCheckpoint(resumeId)
+                    .setLong(POSITION, index.getPosition())
+                    .setLong(SHEET, atlas.getSheet())
+                    .setLong(X, atlas.getX())
+                    .setLong(Y, atlas.getY())
+                    .setLong(SHELF_HEIGHT, atlas.getShelfHeight())
+                    .save();
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to save checkpoint for {}", getName(), e);
+        }
+    }
+
+    private void countBytesWritten()
+    {
+        getMetrics().bytesWritten(index.getPosition() - indexStart + atlas.getBytesWritten());
+    }
+
+    @Override
+    protected void finish(boolean complete)
+    {
+        source.getIdSpace().save();
+
+        final int resumeId = getNextId();
+        pipeline.finish(() ->
+        {
+            try
+            {
+                if (complete)
+                {
+                    atlas.flush();
+                    index.close();
+                    countBytesWritten();
+                    swapIn();
+                    DumpCheckpoint.delete(getName());
+                    log.info("Finished writing {} atlas sheets to {}", atlas.getSheetCount(), DIRECTORY);
+                }
+                else
+                {
+                    saveCheckpoint(resumeId);
+                    index.closePartial();
+                    countBytesWritten();
+                }
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+            finally
+            {
+                done = true;
+            }
+        });
+    }
+
+    /*
+     * Replaces the atlas directory with the staging directory. The old atlas
+     * is moved aside first, so a crash in between leaves one of the two whole.
+     */
+    private static void swapIn() throws IOException
+    {
+        deleteDirectory(OLD_DIRECTORY);
+        if (DIRECTORY.exists())
+        {
+            Files.move(DIRECTORY.toPath(), OLD_DIRECTORY.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(STAGING_DIRECTORY.toPath(), DIRECTORY.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        deleteDirectory(OLD_DIRECTORY);
+    }
+
+    private static void deleteDirectory(File directory)
+    {
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return done;
+    }
+}
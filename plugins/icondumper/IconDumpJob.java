@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.icondumper;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.plugins.dumputils.DumpCheckpoint;
+import net.runelite.client.plugins.dumputils.DumpJob;
+import net.runelite.client.plugins.dumputils.DumpMetrics;
+import net.runelite.client.plugins.dumputils.IconExporter;
+import net.runelite.client.plugins.dumputils.IconLayout;
+import net.runelite.client.plugins.dumputils.ItemSource;
+
+/*
+ * Dumps item icons, the PNG encoding and writing is done by the exporter threads
+ */
+@Slf4j
+class IconDumpJob extends DumpJob
+{
+    static final String NAME = "items-icons";
+
+    private final ItemSource source;
+    private final IconExporter iconExporter;
+    // Saves checkpoints off the client thread, in the order they are taken
+    private final ExecutorService checkpointWriter = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat(NAME + "-checkpoint")
+            .setDaemon(true)
+            .build());
+    private volatile boolean done = false;
+
+    IconDumpJob(ItemSource source, int start, int end, int resumeId, int threads, IconLayout layout)
+    {
+        super(NAME, start, end, resumeId);
+        this.source = source;
+        this.iconExporter = source.getIconExporter(threads, layout);
+        iconExporter.reportTo(getMetrics());
+        iconExporter.cover(start, end);
+    }
+
+    @Override
+    protected boolean hasCapacity()
+    {
+        return iconExporter.hasCapacity();
+    }
+
+    @Override
+    protected void capture(int itemId) throws InterruptedException
+    {
+        long start = DumpMetrics.start();
+        source.submitIcon(itemId);
+        getMetrics().record(DumpMetrics.Phase.FETCH, start);
+        getMetrics().exported();
+    }
+
+    @Override
+    protected void checkpoint(int resumeId)
+    {
+        // Icons are written to their own files, so resuming from the lowest
+        // unwritten ID is enough
+        checkpointWriter.execute(() -> saveCheckpoint(iconExporter.completedBefore(resumeId)));
+    }
+
+    @Override
+    protected void finish(boolean complete)
+    {
+        final int resumeId = getNextId();
+        iconExporter.finish(complete).thenAccept(report ->
+        {
+            log.info("Icon dump finished: {}", report);
+            // After any checkpoint still being saved, so it cannot outlive the delete
+            checkpointWriter.execute(() ->
+            {
+                if (complete)
+                {
+                    DumpCheckpoint.delete(getName());
+                }
+                else
+                {
+                    saveCheckpoint(resumeId);
+                }
+                done = true;
+            });
+            checkpointWriter.shutdown();
+        });
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    private void saveCheckpoint(int resumeId)
+    {
+        try
+        {
+            newCheckpoint(resumeId).save();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
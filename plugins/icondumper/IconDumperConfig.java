@@ -27,6 +27,9 @@ package net.runelite.client.plugins.icondumper;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.plugins.dumputils.IconExporter;
+import net.runelite.client.plugins.dumputils.IconLayout;
 
 @ConfigGroup("icondumper")
 public interface IconDumperConfig extends Config
@@ -43,7 +46,41 @@ public interface IconDumperConfig extends Config
             position = 2,
             keyName = "endAtId",
             name = "Last ID Number",
-            description = "The number to end extraction at"
+            description = "The number to end extraction at, 0 to use every ID in the game cache"
     )
-    default int endAtId() { return 30000; }
+    default int endAtId() { return 0; }
+
+    @ConfigItem(
+            position = 3,
+            keyName = "iconThreads",
+            name = "Encoder threads",
+            description = "The number of threads used to encode and write icon images"
+    )
+    @Range(min = 1)
+    default int iconThreads() { return IconExporter.defaultThreads(); }
+
+    @ConfigItem(
+            position = 4,
+            keyName = "idsPerTick",
+            name = "IDs per tick",
+            description = "How many IDs to dump each client tick, lower keeps the client smoother"
+    )
+    @Range(min = 1)
+    default int idsPerTick() { return 100; }
+
+    @ConfigItem(
+            position = 5,
+            keyName = "iconLayout",
+            name = "Icon layout",
+            description = "Write one PNG per item ID, or each distinct icon once with a manifest mapping item IDs to icons"
+    )
+    default IconLayout iconLayout() { return IconLayout.PER_ID; }
+
+    @ConfigItem(
+            position = 6,
+            keyName = "atlas",
+            name = "Atlas export",
+            description = "Pack icons into 1024x1024 sheet images with an index of each item's sheet and rectangle, instead of one file per item"
+    )
+    default boolean atlas() { return false; }
 }
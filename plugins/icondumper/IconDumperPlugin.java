@@ -26,17 +26,18 @@ package net.runelite.client.plugins.icondumper;
 
 import com.google.inject.Provides;
 import java.io.IOException;
-import java.io.File;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
 import lombok.extern.slf4j.Slf4j;
 import javax.inject.Inject;
-import net.runelite.api.Client;
+import net.runelite.api.events.CommandExecuted;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
-import net.runelite.client.game.ItemManager;
+import net.runelite.client.plugins.dumputils.DumpCheckpoint;
+import net.runelite.client.plugins.dumputils.DumpJob;
+import net.runelite.client.plugins.dumputils.ItemDumpEngine;
+import net.runelite.client.plugins.dumputils.ItemSink;
+import net.runelite.client.plugins.dumputils.ItemSource;
 
 @Slf4j
 @PluginDescriptor(
@@ -46,16 +47,15 @@ import net.runelite.client.game.ItemManager;
         enabledByDefault = false
 )
 
-public class IconDumperPlugin extends Plugin
+public class IconDumperPlugin extends Plugin implements ItemSink
 {
-    @Inject
-    private Client client;
+    private static final String SINK_NAME = "icons";
 
     @Inject
     private IconDumperConfig config;
 
     @Inject
-    private ItemManager itemManager;
+    private ItemDumpEngine engine;
 
     @Provides
     IconDumperConfig provideConfig(ConfigManager configManager)
@@ -67,12 +67,14 @@ public class IconDumperPlugin extends Plugin
     protected void startUp() throws Exception
     {
         log.debug(">>> Starting up IconDumperPlugin...");
+        engine.register(SINK_NAME, this);
     }
 
     @Override
     protected void shutDown() throws Exception
     {
         log.debug(">>> Shutting down IconDumperPlugin...");
+        engine.unregister(SINK_NAME);
     }
 
     @Subscribe
@@ -82,7 +84,16 @@ public class IconDumperPlugin extends Plugin
         {
             case "icons":
             {
-                dumpIcons();
+                // ::icons [pause|resume|cancel|status]
+                String[] arguments = commandExecuted.getArguments();
+                if (arguments.length > 0)
+                {
+                    engine.control(arguments[0], this::resumeIcons, this::getIdsPerTick);
+                }
+                else
+                {
+                    dumpIcons();
+                }
                 break;
             }
         }
@@ -92,26 +103,69 @@ public class IconDumperPlugin extends Plugin
     {
         log.debug(">>> Starting item icon dumper...");
 
+        if (engine.isBusy())
+        {
+            engine.sendMessage(engine.getStatus());
+            return;
+        }
+
+        try
+        {
+            engine.start(start(engine.newSource()), this::getIdsPerTick);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private DumpJob resumeIcons()
+    {
+        try
+        {
+            return resume(engine.newSource());
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public DumpJob start(ItemSource source) throws IOException
+    {
         int start = config.startAtId();
-        int end = config.endAtId();
+        int end = source.getIdSpace().resolveEnd(config.endAtId());
+        if (config.atlas())
+        {
+            return IconAtlasJob.start(source, start, end);
+        }
+
+        DumpCheckpoint.delete(IconDumpJob.NAME);
+        return new IconDumpJob(source, start, end, start, config.iconThreads(), config.iconLayout());
+    }
 
-        for(int itemId=start; itemId<end; itemId++)
+    @Override
+    public DumpJob resume(ItemSource source) throws IOException
+    {
+        if (config.atlas())
         {
-            log.debug("  > Current item ID: " + itemId);
-            // Try to save the item icon
-            try
-            {
-                String directory = "items-icons";
-                File dir = new File(directory);
-                if (!dir.exists()) dir.mkdirs();
-                String outName = "items-icons/"  + itemId + ".png";
-                File outputFile = new File(outName);
-                BufferedImage iconImage = itemManager.getImage(itemId);
-                ImageIO.write(iconImage, "png", outputFile);
-            } catch (IOException e)
-            {
-                e.printStackTrace();
-            }
+            return IconAtlasJob.resume(source);
+        }
+
+        DumpCheckpoint checkpoint = DumpCheckpoint.load(IconDumpJob.NAME);
+        if (checkpoint == null)
+        {
+            return null;
         }
+        return new IconDumpJob(source, checkpoint.getStart(), checkpoint.getEnd(),
+                checkpoint.getResumeId(), config.iconThreads(), config.iconLayout());
+    }
+
+    @Override
+    public int getIdsPerTick()
+    {
+        return config.idsPerTick();
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.itemscraper;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+import org.json.simple.JSONObject;
+
+/*
+ * The item IDs that were added, changed or removed since the last dump, and
+ * the IDs whose icon changed.
+ */
+class ItemChangelog
+{
+    private final List<Integer> added = new ArrayList<>();
+    private final List<Integer> changed = new ArrayList<>();
+    @Getter
+    private final List<Integer> removed = new ArrayList<>();
+    private final List<Integer> iconsChanged = new ArrayList<>();
+
+    /*
+     * Compares the fingerprints of two dumps, previous is null if there was no
+     * previous dump. Only IDs in [start, end) can be removed, the rest of the
+     * previous dump was not dumped again.
+     */
+    static ItemChangelog compare(ItemFingerprintIndex previous, ItemFingerprintIndex current, boolean compareIcons,
+                                 int start, int end)
+    {
+        ItemChangelog changelog = new ItemChangelog();
+        for (int itemID : current.itemIDs())
+        {
+            ItemFingerprintIndex.Entry currentEntry = current.get(itemID);
+            ItemFingerprintIndex.Entry previousEntry = previous != null ? previous.get(itemID) : null;
+            if (previousEntry == null)
+            {
+                changelog.added.add(itemID);
+            }
+            else if (previousEntry.getItemHash() != currentEntry.getItemHash())
+            {
+                changelog.changed.add(itemID);
+            }
+
+            if (compareIcons && (previousEntry == null || previousEntry.getIconHash() != currentEntry.getIconHash()))
+            {
+                changelog.iconsChanged.add(itemID);
+            }
+        }
+
+        // Anything in the dumped range of the last dump that wasn't written this time has been removed
+        if (previous != null)
+        {
+            for (int itemID : previous.itemIDs())
+            {
+                if (itemID >= start && itemID < end && current.get(itemID) == null)
+                {
+                    changelog.removed.add(itemID);
+                }
+            }
+        }
+
+        Collections.sort(changelog.added);
+        Collections.sort(changelog.changed);
+        Collections.sort(changelog.removed);
+        Collections.sort(changelog.iconsChanged);
+        return changelog;
+    }
+
+    void write(File file) throws IOException
+    {
+        JSONObject changelogJSON = new JSONObject();
+        changelogJSON.put("added", added);
+        changelogJSON.put("changed", changed);
+        changelogJSON.put("removed", removed);
+        changelogJSON.put("icons_changed", iconsChanged);
+
+        try (FileWriter fw = new FileWriter(file))
+        {
+            changelogJSON.writeJSONString(fw);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return added.size() + " added, " + changed.size() + " changed, " + removed.size() + " removed, "
+                + iconsChanged.size() + " icons changed";
+    }
+}
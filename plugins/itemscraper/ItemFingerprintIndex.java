@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.itemscraper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import lombok.Getter;
+import lombok.Value;
+
+/*
+ * Fingerprints of every item in the last dump, stored next to the dump in a
+ * small binary file (and saved with each checkpoint while a dump is running). Each entry also records where the item's JSON sits in
+ * items-summary.json and items-scraper.json, so an incremental dump can copy
+ * unchanged items across instead of serialising them again.
+ */
+class ItemFingerprintIndex
+{
+    private static final int MAGIC = 0x4f534649; // "OSFI"
+    private static final int VERSION = 1;
+
+    @Value
+    static class Entry
+    {
+        long itemHash;
+        long iconHash;
+        long summaryOffset;
+        int summaryLength;
+        long scraperOffset;
+        int scraperLength;
+    }
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+
+    // Sizes of the JSON files this index points into, used to detect stale indexes
+    @Getter
+    private long summaryFileLength;
+    @Getter
+    private long scraperFileLength;
+
+    Entry get(int itemID)
+    {
+        return entries.get(itemID);
+    }
+
+    void put(int itemID, Entry entry)
+    {
+        entries.put(itemID, entry);
+    }
+
+    /*
+     * Drops every entry at or above itemID
+     */
+    void retainBelow(int itemID)
+    {
+        entries.keySet().removeIf(id -> id >= itemID);
+    }
+
+    Set<Integer> itemIDs()
+    {
+        return entries.keySet();
+    }
+
+    void setFileLengths(long summaryFileLength, long scraperFileLength)
+    {
+        this.summaryFileLength = summaryFileLength;
+        this.scraperFileLength = scraperFileLength;
+    }
+
+    /*
+     * Returns true if the index still describes the given JSON files
+     */
+    boolean matches(File summaryFile, File scraperFile)
+    {
+        return summaryFile.length() == summaryFileLength && scraperFile.length() == scraperFileLength;
+    }
+
+    static ItemFingerprintIndex load(File file) throws IOException
+    {
+        ItemFingerprintIndex index = new ItemFingerprintIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("Unsupported fingerprint index: " + file);
+            }
+            index.setFileLengths(in.readLong(), in.readLong());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                int itemID = in.readInt();
+                index.put(itemID, new Entry(in.readLong(), in.readLong(),
+                        in.readLong(), in.readInt(), in.readLong(), in.readInt()));
+            }
+        }
+        return index;
+    }
+
+    void save(File file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(summaryFileLength);
+            out.writeLong(scraperFileLength);
+            out.writeInt(entries.size());
+            for (Map.Entry<Integer, Entry> e : entries.entrySet())
+            {
+                Entry entry = e.getValue();
+                out.writeInt(e.getKey());
+                out.writeLong(entry.getItemHash());
+                out.writeLong(entry.getIconHash());
+                out.writeLong(entry.getSummaryOffset());
+                out.writeInt(entry.getSummaryLength());
+                out.writeLong(entry.getScraperOffset());
+                out.writeInt(entry.getScraperLength());
+            }
+        }
+    }
+}
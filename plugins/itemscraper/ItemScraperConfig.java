@@ -27,6 +27,10 @@ package net.runelite.client.plugins.itemscraper;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.plugins.dumputils.IconExporter;
+import net.runelite.client.plugins.dumputils.IconLayout;
+import net.runelite.client.plugins.dumputils.OutputCompression;
 
 @ConfigGroup("itemscraper")
 public interface ItemScraperConfig extends Config
@@ -54,7 +58,60 @@ public interface ItemScraperConfig extends Config
             position = 3,
             keyName = "endConfig",
             name = "Last Item ID",
-            description = "The number to end extraction at"
+            description = "The number to end extraction at, 0 to use every ID in the game cache"
     )
-    default int endConfig() { return 25000; }
+    default int endConfig() { return 0; }
+
+    @ConfigItem(
+            position = 4,
+            keyName = "iconThreads",
+            name = "Icon encoder threads",
+            description = "The number of threads used to encode and write icon images"
+    )
+    @Range(min = 1)
+    default int iconThreads() { return IconExporter.defaultThreads(); }
+
+    @ConfigItem(
+            position = 5,
+            keyName = "incrementalDump",
+            name = "Incremental dump",
+            description = "Only scrape items and icons that changed since the last dump, and write a changelog"
+    )
+    default boolean incrementalDump()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            position = 6,
+            keyName = "idsPerTick",
+            name = "Items per tick",
+            description = "How many item IDs to scrape each client tick, lower keeps the client smoother"
+    )
+    @Range(min = 1)
+    default int idsPerTick() { return 100; }
+
+    @ConfigItem(
+            position = 7,
+            keyName = "iconLayout",
+            name = "Icon layout",
+            description = "Write one PNG per item ID, or each distinct icon once with a manifest mapping item IDs to icons"
+    )
+    default IconLayout iconLayout() { return IconLayout.PER_ID; }
+
+    @ConfigItem(
+            position = 8,
+            keyName = "outputCompression",
+            name = "Output compression",
+            description = "Compress the JSON output while it is written, each compressed file gets a .sha256 checksum. Compressed dumps are never incremental"
+    )
+    default OutputCompression outputCompression() { return OutputCompression.NONE; }
+
+    @ConfigItem(
+            position = 9,
+            keyName = "compressionLevel",
+            name = "Compression level",
+            description = "Deflate level, from 1 (fastest) to 9 (smallest)"
+    )
+    default int compressionLevel() { return 6; }
 }
@@ -0,0 +1,543 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.itemscraper;
+
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ItemComposition;
+import net.runelite.client.plugins.dumputils.DumpCheckpoint;
+import net.runelite.client.plugins.dumputils.DumpJob;
+import net.runelite.client.plugins.dumputils.DumpMetrics;
+import net.runelite.client.plugins.dumputils.DumpOutputStream;
+import net.runelite.client.plugins.dumputils.DumpPipeline;
+import net.runelite.client.plugins.dumputils.Fingerprint;
+import net.runelite.client.plugins.dumputils.IconExporter;
+import net.runelite.client.plugins.dumputils.IdSpace;
+import net.runelite.client.plugins.dumputils.ItemSource;
+import net.runelite.client.plugins.dumputils.ItemTable;
+import net.runelite.client.plugins.dumputils.JsonStreamWriter;
+import net.runelite.client.plugins.dumputils.OutputCompression;
+import org.json.simple.JSONObject;
+
+/*
+ * Scrapes items_summary.json, items_scraper.json and optionally the item icons.
+ * The client thread only captures the raw item fields, the JSON work is done by
+ * the pipeline workers and written in order. Both files are written next to the
+ * previous dump and only replace it once complete, and checkpoints save the
+ * fingerprints of every item written so far so a dump can be resumed.
+ */
+@Slf4j
+class ItemScraperJob extends DumpJob
+{
+    static final String NAME = "items-scraper";
+
+    private static final File SUMMARY_FILE = new File("items-summary.json");
+    private static final File SCRAPER_FILE = new File("items-scraper.json");
+    private static final File FINGERPRINT_FILE = new File("items-fingerprints.dat");
+    private static final File CHANGELOG_FILE = new File("items-changelog.json");
+    private static final File FINGERPRINT_TEMP_FILE = new File("items-fingerprints.dat.tmp");
+    private static final String ICON_DIRECTORY = "items-icons";
+
+    // Checkpoint properties
+    private static final String INCREMENTAL = "incremental";
+    private static final String SUMMARY_POSITION = "summary";
+    private static final String SCRAPER_POSITION = "scraper";
+    private static final String COMPRESSION = "compression";
+
+    private final ItemSource source;
+    private final boolean incremental;
+    private final OutputCompression compression;
+    private final File summaryFile;
+    private final File scraperFile;
+    private final File summaryTempFile;
+    private final File scraperTempFile;
+    private final ItemFingerprintIndex previousIndex;
+    private final ItemFingerprintIndex currentIndex;
+    private final JsonStreamWriter summaryWriter;
+    private final JsonStreamWriter scraperWriter;
+    private final long summaryStart;
+    private final long scraperStart;
+    private final FileChannel previousSummary;
+    private final FileChannel previousScraper;
+    private final ItemTable items;
+    private final DumpPipeline<ScrapedItem> pipeline;
+    private final IconExporter iconExporter;
+    private volatile boolean jsonDone = false;
+    private volatile boolean iconsDone = false;
+
+    @Value
+    private static class ScrapedItem
+    {
+        int id;
+        long itemHash;
+        long iconHash;
+        byte[] summaryJSON;
+        byte[] scraperJSON;
+    }
+
+    static ItemScraperJob start(ItemSource source, ItemScraperConfig config) throws IOException
+    {
+        DumpCheckpoint.delete(NAME);
+        return new ItemScraperJob(source, config, config.startConfig(), source.getIdSpace().resolveEnd(config.endConfig()),
+                config.incrementalDump(), config.outputCompression(), null, new ItemFingerprintIndex());
+    }
+
+    /*
+     * Returns the job saved in the last checkpoint, or null if there is nothing to resume
+     */
+    static ItemScraperJob resume(ItemSource source, ItemScraperConfig config) throws IOException
+    {
+        DumpCheckpoint checkpoint = DumpCheckpoint.load(NAME);
+        if (checkpoint == null || !FINGERPRINT_TEMP_FILE.exists())
+        {
+            return null;
+        }
+
+        // The fingerprints may have been saved slightly after the checkpoint
+        ItemFingerprintIndex currentIndex = ItemFingerprintIndex.load(FINGERPRINT_TEMP_FILE);
+        currentIndex.retainBelow(checkpoint.getResumeId());
+
+        return new ItemScraperJob(source, config, checkpoint.getStart(), checkpoint.getEnd(),
+                checkpoint.getBoolean(INCREMENTAL),
+                OutputCompression.valueOf(checkpoint.getString(COMPRESSION, OutputCompression.NONE.name())),
+                checkpoint, currentIndex);
+    }
+
+    private ItemScraperJob(ItemSource source, ItemScraperConfig config, int start, int end, boolean incremental,
+                           OutputCompression compression, DumpCheckpoint checkpoint, ItemFingerprintIndex currentIndex) throws IOException
+    {
+        super(NAME, start, end, checkpoint != null ? checkpoint.getResumeId() : start);
+        this.source = source;
+        this.incremental = incremental;
+        this.compression = compression;
+        this.currentIndex = currentIndex;
+        this.summaryFile = compression.apply(SUMMARY_FILE);
+        this.scraperFile = compression.apply(SCRAPER_FILE);
+        this.summaryTempFile = new File(summaryFile.getPath() + ".tmp");
+        this.scraperTempFile = new File(scraperFile.getPath() + ".tmp");
+
+        // In incremental mode only items that changed since the last dump are
+        // scraped again, everything else is copied from the previous files.
+        // Copying needs random access to the previous files, so compressed
+        // dumps are always full dumps.
+        this.previousIndex = incremental && compression == OutputCompression.NONE ? loadFingerprintIndex() : null;
+        this.previousSummary = previousIndex != null ? FileChannel.open(SUMMARY_FILE.toPath(), StandardOpenOption.READ) : null;
+        this.previousScraper = previousIndex != null ? FileChannel.open(SCRAPER_FILE.toPath(), StandardOpenOption.READ) : null;
+
+        this.summaryStart = checkpoint != null ? checkpoint.getLong(SUMMARY_POSITION) : 0;
+        this.scraperStart = checkpoint != null ? checkpoint.getLong(SCRAPER_POSITION) : 0;
+        this.summaryWriter = new JsonStreamWriter(summaryTempFile, summaryStart, compression, config.compressionLevel());
+        this.scraperWriter = new JsonStreamWriter(scraperTempFile, scraperStart, compression, config.compressionLevel());
+        this.items = new ItemTable(start, end);
+        this.pipeline = new DumpPipeline<>(NAME, this::writeItem);
+
+        // Icons are handed straight to the icon exporter threads
+        this.iconExporter = config.dumpItemIcons() ? source.getIconExporter(config.iconThreads(), config.iconLayout()) : null;
+        if (iconExporter != null)
+        {
+            iconExporter.reportTo(getMetrics());
+            iconExporter.cover(start, end);
+        }
+    }
+
+    private static ItemFingerprintIndex loadFingerprintIndex()
+    {
+        if (!FINGERPRINT_FILE.exists() || !SUMMARY_FILE.exists() || !SCRAPER_FILE.exists())
+        {
+            log.debug(">>> No previous dump, doing a full dump...");
+            return null;
+        }
+
+        try
+        {
+            ItemFingerprintIndex index = ItemFingerprintIndex.load(FINGERPRINT_FILE);
+            if (!index.matches(SUMMARY_FILE, SCRAPER_FILE))
+            {
+                log.debug(">>> Previous dump has been modified, doing a full dump...");
+                return null;
+            }
+            return index;
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    protected boolean hasCapacity()
+    {
+        return pipeline.hasCapacity() && (iconExporter == null || iconExporter.hasCapacity());
+    }
+
+    @Override
+    protected void capture(int itemID) throws InterruptedException
+    {
+        final DumpMetrics metrics = getMetrics();
+
+        // Skip IDs an earlier dump found to be empty, without fetching them again
+        final IdSpace idSpace = source.getIdSpace();
+        if (idSpace.isEmpty(itemID))
+        {
+            metrics.skipped();
+            return;
+        }
+
+        // Fetch the item composition
+        long start = DumpMetrics.start();
+        ItemComposition itemComposition = source.getItemDefinition(itemID);
+        metrics.record(DumpMetrics.Phase.FETCH, start);
+        if (itemComposition == null || IdSpace.isNullName(itemComposition.getName()))
+        {
+            // Skip any items where name in null
+            idSpace.markEmpty(itemID);
+            metrics.skipped();
+            return;
+        }
+
+        start = DumpMetrics.start();
+        final long itemHash = Fingerprint.of(itemComposition);
+        final ItemFingerprintIndex.Entry previousEntry = previousIndex != null ? previousIndex.get(itemID) : null;
+
+        // If user wants to dump item icon image, only encode it if it is new or has changed
+        long iconHash = previousEntry != null ? previousEntry.getIconHash() : 0;
+        if (iconExporter != null)
+        {
+            metrics.record(DumpMetrics.Phase.DERIVE, start);
+            start = DumpMetrics.start();
+            BufferedImage iconImage = source.getImage(itemID);
+            metrics.record(DumpMetrics.Phase.FETCH, start);
+
+            start = DumpMetrics.start();
+            iconHash = Fingerprint.of(iconImage);
+            if (previousEntry == null || previousEntry.getIconHash() != iconHash || !iconExporter.keep(itemID, iconHash))
+            {
+                source.submitIcon(itemID);
+            }
+        }
+
+        final long finalIconHash = iconHash;
+        if (previousEntry != null && previousEntry.getItemHash() == itemHash)
+        {
+            metrics.record(DumpMetrics.Phase.DERIVE, start);
+            pipeline.submit(() -> serialize(() -> copyItem(itemID, itemHash, finalIconHash, previousEntry)));
+        }
+        else
+        {
+            items.capture(itemID, itemComposition);
+            metrics.record(DumpMetrics.Phase.DERIVE, start);
+            pipeline.submit(() -> serialize(() -> scrapeItem(items, itemID, itemHash, finalIconHash)));
+        }
+    }
+
+    private ScrapedItem serialize(Callable<ScrapedItem> serializer) throws Exception
+    {
+        long start = DumpMetrics.start();
+        ScrapedItem scrapedItem = serializer.call();
+        getMetrics().record(DumpMetrics.Phase.SERIALIZE, start);
+        return scrapedItem;
+    }
+
+    private void writeItem(ScrapedItem scrapedItem) throws IOException
+    {
+        long start = DumpMetrics.start();
+        long summaryOffset = summaryWriter.writeEntry(scrapedItem.getId(), scrapedItem.getSummaryJSON());
+        long scraperOffset = scraperWriter.writeEntry(scrapedItem.getId(), scrapedItem.getScraperJSON());
+        currentIndex.put(scrapedItem.getId(), new ItemFingerprintIndex.Entry(
+                scrapedItem.getItemHash(), scrapedItem.getIconHash(),
+                summaryOffset, scrapedItem.getSummaryJSON().length,
+                scraperOffset, scrapedItem.getScraperJSON().length));
+        getMetrics().record(DumpMetrics.Phase.WRITE, start);
+        getMetrics().exported();
+    }
+
+    @Override
+    protected void checkpoint(int resumeId)
+    {
+        pipeline.barrier(() -> saveCheckpoint(resumeId));
+    }
+
+    private void saveCheckpoint(int resumeId)
+    {
+        try
+        {
+            if (iconExporter != null)
+            {
+                iconExporter.awaitCompletedBefore(resumeId);
+            }
+            summaryWriter.sync();
+            scraperWriter.sync();
+
+            // Fingerprints first, so they always cover everything before the checkpoint
+            currentIndex.save(FINGERPRINT_TEMP_FILE);
+            newCheckpoint(resumeId)
+                    .setBoolean(INCREMENTAL, incremental)
+                    .setString(COMPRESSION, compression.name())
+                    .setLong(SUMMARY_POSITION, summaryWriter.getPosition())
+                    .setLong(SCRAPER_POSITION, scraperWriter.getPosition())
+                    .save();
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to save checkpoint for {}", NAME, e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void finish(boolean complete)
+    {
+        source.getIdSpace().save();
+
+        final int resumeId = getNextId();
+        pipeline.finish(() ->
+        {
+            try
+            {
+                if (complete)
+                {
+                    writeDump();
+                }
+                else
+                {
+                    saveCheckpoint(resumeId);
+                    summaryWriter.closePartial();
+                    scraperWriter.closePartial();
+                    countBytesWritten();
+                    closePrevious();
+                }
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+            finally
+            {
+                jsonDone = true;
+            }
+            log.debug(">>> Finished writing item dump");
+        });
+
+        if (iconExporter != null)
+        {
+            iconExporter.finish(complete).thenAccept(report ->
+            {
+                log.info("Item icon dump finished: {}", report);
+                iconsDone = true;
+            });
+        }
+        else
+        {
+            iconsDone = true;
+        }
+    }
+
+    private void writeDump() throws IOException
+    {
+        summaryWriter.close();
+        scraperWriter.close();
+        countBytesWritten();
+        closePrevious();
+
+        Files.move(summaryTempFile.toPath(), summaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(scraperTempFile.toPath(), scraperFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        if (compression != OutputCompression.NONE)
+        {
+            DumpOutputStream.writeChecksum(summaryFile, summaryWriter.getChecksum());
+            DumpOutputStream.writeChecksum(scraperFile, scraperWriter.getChecksum());
+        }
+        else
+        {
+            // Save the fingerprints so the next dump can be incremental
+            currentIndex.setFileLengths(SUMMARY_FILE.length(), SCRAPER_FILE.length());
+            currentIndex.save(FINGERPRINT_FILE);
+        }
+
+        if (incremental)
+        {
+            ItemChangelog changelog = ItemChangelog.compare(previousIndex, currentIndex, iconExporter != null,
+                    getStart(), getEnd());
+            for (int itemID : changelog.getRemoved())
+            {
+                // The exporter knows its layout and what the other jobs wrote
+                if (iconExporter != null)
+                {
+                    iconExporter.remove(itemID);
+                }
+                else
+                {
+                    iconFile(itemID).delete();
+                }
+            }
+            changelog.write(CHANGELOG_FILE);
+            log.info("Incremental item dump: {}", changelog);
+        }
+
+        FINGERPRINT_TEMP_FILE.delete();
+        DumpCheckpoint.delete(NAME);
+    }
+
+    private void countBytesWritten()
+    {
+        getMetrics().bytesWritten(summaryWriter.getPosition() - summaryStart + scraperWriter.getPosition() - scraperStart);
+    }
+
+    private void closePrevious() throws IOException
+    {
+        if (previousIndex != null)
+        {
+            previousSummary.close();
+            previousScraper.close();
+        }
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return jsonDone && iconsDone;
+    }
+
+    private static File iconFile(int itemID)
+    {
+        return new File(ICON_DIRECTORY, itemID + ".png");
+    }
+
+    private ScrapedItem copyItem(int itemID, long itemHash, long iconHash, ItemFingerprintIndex.Entry previousEntry) throws IOException
+    {
+        // Unchanged item, reuse the JSON written by the last dump
+        byte[] summaryJSON = readFragment(previousSummary, previousEntry.getSummaryOffset(), previousEntry.getSummaryLength());
+        byte[] scraperJSON = readFragment(previousScraper, previousEntry.getScraperOffset(), previousEntry.getScraperLength());
+        return new ScrapedItem(itemID, itemHash, iconHash, summaryJSON, scraperJSON);
+    }
+
+    private static byte[] readFragment(FileChannel channel, long offset, int length) throws IOException
+    {
+        // Positional reads, so the pipeline workers can share the channel
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+            {
+                throw new EOFException("Previous dump is truncated");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static ScrapedItem scrapeItem(ItemTable items, int itemID, long itemHash, long iconHash)
+    {
+        //////////////////////////////////////////////////
+        // Define first JSON Objects structure: items_summary.json
+        // {
+        //     "0":{
+        //          "name":"Dwarf remains",
+        //          "id":0
+        //     },
+        //     "1":{
+        //          "name":"Toolkit",
+        //          "id":1
+        //     },
+        //     ...
+        // }
+        JSONObject itemSummaryJSON = new JSONObject();
+
+        // Current item in JSON format for the summary.json array
+        // This only includes item ID and item name
+        // For example: "0":{"name":"Dwarf remains","id":0}
+        itemSummaryJSON.put("id", itemID);
+        itemSummaryJSON.put("name", items.getName(itemID));
+
+        //////////////////////////////////////////////////
+        // Define second JSON Objects structure: items_scraper.json
+        //  {
+        //        "id":0
+        //        "name":"Dwarf remains",
+        //        "members":true,
+        //        "tradeable":false,
+        //        "stackable":false,
+        //        "noted":false,
+        //        "noteable":false,
+        //        "linked_id": null,
+        //        "equipable":false,
+        //        "cost":1,
+        //        "lowalch":0,
+        //        "highalch":0,
+        //  }
+        JSONObject itemJSON = new JSONObject();
+
+        // Populate JSON with everything useful
+
+        // Start by fetching basic properties directly from cache
+        itemJSON.put("id", itemID);
+        itemJSON.put("name", items.getName(itemID));
+        itemJSON.put("members", items.isMembers(itemID));
+        itemJSON.put("tradeable_on_ge", items.isTradeable(itemID));
+        itemJSON.put("stackable", items.isStackable(itemID));
+
+        // Noted, notable, placeholder and equipable are worked out when the
+        // item is captured, see ItemTable
+        itemJSON.put("noted", items.isNoted(itemID));
+        itemJSON.put("noteable", items.isNoteable(itemID));
+
+        // Populate linked item ID using getLinkedNoteId. Calling the method:
+        // 1. On a noted item -> the ID of the item in unnoted form
+        // 2. On an unnoted item -> the ID of the item in noted form
+        if (items.getLinkedId(itemID) == -1)
+        {
+            itemJSON.put("linked_id", null);
+        }
+        else
+        {
+            itemJSON.put("linked_id", items.getLinkedId(itemID));
+        }
+
+        itemJSON.put("placeholder", items.isPlaceholder(itemID));
+        itemJSON.put("equipable", items.isEquipable(itemID));
+
+        // Determine cost, then lowalch and highalch from the cost
+        itemJSON.put("cost", items.getCost(itemID));
+        itemJSON.put("lowalch", items.getLowAlch(itemID));
+        itemJSON.put("highalch", items.getHighAlch(itemID));
+
+        return new ScrapedItem(itemID, itemHash, iconHash,
+                JsonStreamWriter.encode(itemSummaryJSON.toJSONString()),
+                JsonStreamWriter.encode(itemJSON.toJSONString()));
+    }
+}
@@ -24,85 +24,42 @@
  */
 package net.runelite.client.plugins.metadatadumper;
 
-import java.util.Arrays;
-import lombok.Setter;
-import net.runelite.api.ItemComposition;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import net.runelite.client.plugins.dumputils.ItemTable;
 
+/*
+ * Writes the items-metadata.json entry of an item straight from the item table,
+ * with the same fields and field order Gson produced for the old ItemMetadata
+ * object, but without building an object per item.
+ */
 public class ItemMetadata
 {
-    @Setter
-    private int id = -1;
-    @Setter
-    private String name = null;
-    @Setter
-    private Boolean members = false;
-    @Setter
-    private Boolean tradeable_on_ge = false;
-    @Setter
-    private Boolean stackable = false;
-    @Setter
-    private Boolean noted = false;
-    @Setter
-    private Boolean noteable = false;
-    @Setter
-    private int linked_id = -1;
-    @Setter
-    private Boolean placeholder = false;
-    @Setter
-    private Boolean equipable = false;
-    @Setter
-    private int cost = -1;
-    @Setter
-    private int low_alch = -1;
-    @Setter
-    private int high_alch = -1;
-
-    public void populateItemMetadata(ItemComposition itemComposition)
+    public static String toJson(ItemTable items, int itemId) throws IOException
     {
-        // Start by fetching basic properties directly from an ItemDefinition
-        this.id = itemComposition.getId();
-        this.name = itemComposition.getName();
-        this.members = itemComposition.isMembers();
-        this.tradeable_on_ge = itemComposition.isTradeable();
-        this.stackable = itemComposition.isStackable();
-        this.linked_id = itemComposition.getLinkedNoteId();
-        // Determine cost, then alchemy values
-        this.cost = itemComposition.getPrice();
-        this.low_alch = (int)Math.floor(itemComposition.getPrice() * 0.4);
-        this.high_alch = (int)Math.floor(itemComposition.getPrice() * 0.6);
-
-        // Determine if item is noted... According to RuneLite API:
-        // 799 with be returned if the item is noted
-        if (itemComposition.getNote() == 799)
-        {
-            this.noted = true;
-        }
-
-        // Determine if item is notable:
-        if ((itemComposition.getNote() == 799) || (itemComposition.getLinkedNoteId() != -1))
-        {
-            // If the item itself is noted or linked ID is noted, it must be notable!
-            this.noteable = true;
-        }
-
-        // Populate placeholder boolean (is the item ID a placeholder)
-        // 14401 if placeholder, -1 otherwise
-        if (itemComposition.getPlaceholderTemplateId() == 14401)
-        {
-            this.placeholder = true;
-        }
+        StringWriter out = new StringWriter(256);
+        JsonWriter json = new JsonWriter(out);
+        // Match the Gson defaults: HTML characters escaped and null names left out
+        json.setHtmlSafe(true);
+        json.setSerializeNulls(false);
 
-        // Determine if item is equipable:
-        String[] inventoryActions = itemComposition.getInventoryActions();
-        // If inventoryActions contains "Wear", "Wield" or "Equip" it is deemed equipable
-        if (inventoryActions != null)
-        {
-            if (Arrays.asList(inventoryActions).contains("Wear") ||
-                    Arrays.asList(inventoryActions).contains("Wield") ||
-                    Arrays.asList(inventoryActions).contains("Equip"))
-            {
-                this.equipable = true;
-            }
-        }
+        json.beginObject();
+        json.name("id").value(itemId);
+        json.name("name").value(items.getName(itemId));
+        json.name("members").value(items.isMembers(itemId));
+        json.name("tradeable_on_ge").value(items.isTradeable(itemId));
+        json.name("stackable").value(items.isStackable(itemId));
+        json.name("noted").value(items.isNoted(itemId));
+        json.name("noteable").value(items.isNoteable(itemId));
+        json.name("linked_id").value(items.getLinkedId(itemId));
+        json.name("placeholder").value(items.isPlaceholder(itemId));
+        json.name("equipable").value(items.isEquipable(itemId));
+        json.name("cost").value(items.getCost(itemId));
+        json.name("low_alch").value(items.getLowAlch(itemId));
+        json.name("high_alch").value(items.getHighAlch(itemId));
+        json.endObject();
+        json.flush();
+        return out.toString();
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.metadatadumper;
+
+import java.io.File;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ItemComposition;
+import net.runelite.client.plugins.dumputils.DumpCheckpoint;
+import net.runelite.client.plugins.dumputils.DumpMetrics;
+import net.runelite.client.plugins.dumputils.IdSpace;
+import net.runelite.client.plugins.dumputils.ItemSource;
+import net.runelite.client.plugins.dumputils.ItemTable;
+import net.runelite.client.plugins.dumputils.JsonDumpJob;
+
+/*
+ * Dumps items-metadata.json, and optionally the item icons
+ */
+@Slf4j
+class ItemMetadataJob extends JsonDumpJob
+{
+    static final String NAME = "items-metadata";
+
+    private final ItemSource source;
+    private final ItemTable items;
+    private final boolean binaryExport;
+
+    ItemMetadataJob(ItemSource source, MetadataDumperConfig config, DumpCheckpoint checkpoint) throws IOException
+    {
+        super(NAME, new File("items-metadata.json"),
+                checkpoint != null ? checkpoint.getStart() : config.startConfig(),
+                checkpoint != null ? checkpoint.getEnd() : source.getIdSpace().resolveEnd(config.endConfig()),
+                checkpoint,
+                config.dumpItemIcons() ? source.getIconExporter(config.iconThreads(), config.iconLayout()) : null,
+                config.outputCompression(),
+                config.compressionLevel());
+        this.source = source;
+        this.items = new ItemTable(getStart(), getEnd());
+        this.binaryExport = config.binaryExport();
+    }
+
+    @Override
+    protected void capture(int itemId) throws InterruptedException
+    {
+        DumpMetrics metrics = getMetrics();
+
+        // Found empty by an earlier dump
+        IdSpace idSpace = source.getIdSpace();
+        if (idSpace.isEmpty(itemId))
+        {
+            metrics.skipped();
+            return;
+        }
+
+        // Fetch the item composition
+        long start = DumpMetrics.start();
+        ItemComposition itemComposition = source.getItemDefinition(itemId);
+        metrics.record(DumpMetrics.Phase.FETCH, start);
+        if (itemComposition != null)
+        {
+            if (IdSpace.isNullName(itemComposition.getName()))
+            {
+                // Skip items with a null name
+                idSpace.markEmpty(itemId);
+                metrics.skipped();
+                return;
+            }
+
+            // Only the item table row is filled in on the client thread, the
+            // JSON is written by the pipeline workers
+            start = DumpMetrics.start();
+            items.capture(itemId, itemComposition);
+            metrics.record(DumpMetrics.Phase.DERIVE, start);
+            submit(itemId, () -> ItemMetadata.toJson(items, itemId));
+        }
+
+        // If user wants to dump item icon image
+        if (getIconExporter() != null)
+        {
+            start = DumpMetrics.start();
+            source.submitIcon(itemId);
+            metrics.record(DumpMetrics.Phase.FETCH, start);
+        }
+    }
+
+    @Override
+    protected void finish(boolean complete)
+    {
+        source.getIdSpace().save();
+        super.finish(complete);
+    }
+
+    @Override
+    protected void completed(File outputFile) throws IOException
+    {
+        if (binaryExport)
+        {
+            MetadataBinaryWriter.writeItems(outputFile, getCompression(), new File("items-metadata.bin"), getStart(), getEnd());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.metadatadumper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import lombok.Getter;
+
+/*
+ * Reads the binary items-metadata.bin and npcs-metadata.bin exports. The file
+ * is memory-mapped and only the records that are asked for are read, so
+ * opening it is O(1) and processes reading the same file share its pages.
+ *
+ * Layout (big-endian):
+ *   header     64 bytes, see the HEADER_ constants
+ *   records    one fixed-width record per ID from firstId, every field a 4 byte int
+ *   table      strings as [length][UTF-8 bytes], int arrays as [count][ints] and
+ *              string arrays as [count][string offsets]
+ *
+ * Record fields that point into the table hold an offset from the start of
+ * the table, or -1 for null. Records of IDs that were not dumped are zero.
+ * The getters check the PRESENT flag, so for an ID that was not dumped or is
+ * outside the file they return -1, false or null instead of reading a zeroed
+ * record as offset 0, the first string in the table.
+ */
+public class MetadataBinaryReader
+{
+    public static final int MAGIC = 0x4F534D44; // "OSMD"
+    public static final int VERSION = 1;
+    public static final int TYPE_ITEMS = 1;
+    public static final int TYPE_NPCS = 2;
+
+    public static final int HEADER_SIZE = 64;
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_TYPE = 8;
+    static final int HEADER_FIRST_ID = 12;
+    static final int HEADER_RECORD_COUNT = 16;
+    static final int HEADER_RECORD_FIELDS = 20;
+    static final int HEADER_TABLE_OFFSET = 24;
+    static final int HEADER_TABLE_LENGTH = 32;
+    // CRC32 of everything after the header
+    static final int HEADER_CHECKSUM = 40;
+
+    // Fields shared by item and NPC records
+    public static final int FLAGS = 0;
+    public static final int NAME = 1;
+
+    // Item record fields
+    public static final int ITEM_LINKED_ID = 2;
+    public static final int ITEM_COST = 3;
+    public static final int ITEM_LOW_ALCH = 4;
+    public static final int ITEM_HIGH_ALCH = 5;
+    public static final int ITEM_FIELDS = 6;
+
+    // NPC record fields
+    public static final int NPC_COMBAT_LEVEL = 2;
+    public static final int NPC_SIZE = 3;
+    public static final int NPC_MODEL_IDS = 4;
+    public static final int NPC_ACTIONS = 5;
+    public static final int NPC_FIELDS = 6;
+
+    // Bits of the FLAGS field
+    public static final int PRESENT = 1;
+    public static final int ITEM_MEMBERS = 1 << 1;
+    public static final int ITEM_TRADEABLE_ON_GE = 1 << 2;
+    public static final int ITEM_STACKABLE = 1 << 3;
+    public static final int ITEM_NOTED = 1 << 4;
+    public static final int ITEM_NOTEABLE = 1 << 5;
+    public static final int ITEM_PLACEHOLDER = 1 << 6;
+    public static final int ITEM_EQUIPABLE = 1 << 7;
+    public static final int NPC_CLICKABLE = 1 << 1;
+
+    private final ByteBuffer buffer;
+    @Getter
+    private final int type;
+    @Getter
+    private final int firstId;
+    @Getter
+    private final int recordCount;
+    private final int recordSize;
+    private final int tableOffset;
+
+    private MetadataBinaryReader(ByteBuffer buffer) throws IOException
+    {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(HEADER_MAGIC) != MAGIC)
+        {
+            throw new IOException("Not a metadata export");
+        }
+        if (buffer.getInt(HEADER_VERSION) != VERSION)
+        {
+            throw new IOException("Unsupported metadata export version " + buffer.getInt(HEADER_VERSION));
+        }
+
+        this.type = buffer.getInt(HEADER_TYPE);
+        this.firstId = buffer.getInt(HEADER_FIRST_ID);
+        this.recordCount = buffer.getInt(HEADER_RECORD_COUNT);
+        this.recordSize = buffer.getInt(HEADER_RECORD_FIELDS) * 4;
+        this.tableOffset = (int) buffer.getLong(HEADER_TABLE_OFFSET);
+        if (tableOffset != HEADER_SIZE + (long) recordCount * recordSize
+                || tableOffset + buffer.getLong(HEADER_TABLE_LENGTH) != buffer.capacity())
+        {
+            throw new IOException("Metadata export is truncated");
+        }
+    }
+
+    public static MetadataBinaryReader open(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MetadataBinaryReader(buffer);
+        }
+    }
+
+    /*
+     * Checks the file against the checksum in its header, this reads the whole file
+     */
+    public boolean verify()
+    {
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue() == buffer.getLong(HEADER_CHECKSUM);
+    }
+
+    public boolean contains(int id)
+    {
+        return id >= firstId && id - firstId < recordCount && (readField(id, FLAGS) & PRESENT) != 0;
+    }
+
+    /*
+     * Returns a field of the record of id, -1 if the ID is not in the export
+     */
+    public int getInt(int id, int field)
+    {
+        return contains(id) ? readField(id, field) : -1;
+    }
+
+    public boolean hasFlag(int id, int flag)
+    {
+        return contains(id) && (readField(id, FLAGS) & flag) != 0;
+    }
+
+    private int readField(int id, int field)
+    {
+        return buffer.getInt(HEADER_SIZE + (id - firstId) * recordSize + field * 4);
+    }
+
+    public String getName(int id)
+    {
+        return getString(id, NAME);
+    }
+
+    public String getString(int id, int field)
+    {
+        return readString(getInt(id, field));
+    }
+
+    public int[] getIntArray(int id, int field)
+    {
+        int offset = getInt(id, field);
+        if (offset == -1)
+        {
+            return null;
+        }
+        int position = tableOffset + offset;
+        int[] values = new int[buffer.getInt(position)];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = buffer.getInt(position + 4 + i * 4);
+        }
+        return values;
+    }
+
+    public String[] getStringArray(int id, int field)
+    {
+        int[] offsets = getIntArray(id, field);
+        if (offsets == null)
+        {
+            return null;
+        }
+        String[] values = new String[offsets.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = readString(offsets[i]);
+        }
+        return values;
+    }
+
+    private String readString(int offset)
+    {
+        if (offset == -1)
+        {
+            return null;
+        }
+        ByteBuffer string = buffer.duplicate();
+        string.position(tableOffset + offset);
+        byte[] bytes = new byte[string.getInt()];
+        string.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.metadatadumper;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import net.runelite.client.plugins.dumputils.OutputCompression;
+
+import static net.runelite.client.plugins.metadatadumper.MetadataBinaryReader.*;
+
+/*
+ * Converts a finished items-metadata.json or npcs-metadata.json into the binary
+ * format read by MetadataBinaryReader. Working from the JSON means the export
+ * also covers dumps that were paused and resumed across restarts.
+ */
+class MetadataBinaryWriter
+{
+    private final int type;
+    private final int firstId;
+    private final int recordCount;
+    private final int fields;
+    private final ByteBuffer records;
+    private final ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+    private final DataOutputStream table = new DataOutputStream(tableBytes);
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private MetadataBinaryWriter(int type, int start, int end, int fields)
+    {
+        this.type = type;
+        this.firstId = start;
+        this.recordCount = Math.max(0, end - start);
+        this.fields = fields;
+        this.records = ByteBuffer.allocate(recordCount * fields * 4);
+    }
+
+    static void writeItems(File jsonFile, OutputCompression compression, File binaryFile, int start, int end) throws IOException
+    {
+        MetadataBinaryWriter writer = new MetadataBinaryWriter(TYPE_ITEMS, start, end, ITEM_FIELDS);
+        try (JsonReader in = new JsonReader(compression.openReader(jsonFile)))
+        {
+            in.beginObject();
+            while (in.hasNext())
+            {
+                in.nextName();
+                writer.readItem(in);
+            }
+            in.endObject();
+        }
+        writer.write(binaryFile);
+    }
+
+    static void writeNpcs(File jsonFile, OutputCompression compression, File binaryFile, int start, int end) throws IOException
+    {
+        MetadataBinaryWriter writer = new MetadataBinaryWriter(TYPE_NPCS, start, end, NPC_FIELDS);
+        try (JsonReader in = new JsonReader(compression.openReader(jsonFile)))
+        {
+            in.beginObject();
+            while (in.hasNext())
+            {
+                in.nextName();
+                writer.readNpc(in);
+            }
+            in.endObject();
+        }
+        writer.write(binaryFile);
+    }
+
+    private void readItem(JsonReader in) throws IOException
+    {
+        int id = -1;
+        int flags = PRESENT;
+        int name = -1;
+        int linkedId = -1;
+        int cost = -1;
+        int lowAlch = -1;
+        int highAlch = -1;
+
+        // Field names as written by ItemMetadata
+        in.beginObject();
+        while (in.hasNext())
+        {
+            switch (in.nextName())
+            {
+                case "id":
+                    id = in.nextInt();
+                    break;
+                case "name":
+                    name = addString(nextString(in));
+                    break;
+                case "members":
+                    flags |= nextFlag(in, ITEM_MEMBERS);
+                    break;
+                case "tradeable_on_ge":
+                    flags |= nextFlag(in, ITEM_TRADEABLE_ON_GE);
+                    break;
+                case "stackable":
+                    flags |= nextFlag(in, ITEM_STACKABLE);
+                    break;
+                case "noted":
+                    flags |= nextFlag(in, ITEM_NOTED);
+                    break;
+                case "noteable":
+                    flags |= nextFlag(in, ITEM_NOTEABLE);
+                    break;
+                case "linked_id":
+                    linkedId = in.nextInt();
+                    break;
+                case "placeholder":
+                    flags |= nextFlag(in, ITEM_PLACEHOLDER);
+                    break;
+                case "equipable":
+                    flags |= nextFlag(in, ITEM_EQUIPABLE);
+                    break;
+                case "cost":
+                    cost = in.nextInt();
+                    break;
+                case "low_alch":
+                    lowAlch = in.nextInt();
+                    break;
+                case "high_alch":
+                    highAlch = in.nextInt();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (!inRange(id))
+        {
+            return;
+        }
+        putField(id, FLAGS, flags);
+        putField(id, NAME, name);
+        putField(id, ITEM_LINKED_ID, linkedId);
+        putField(id, ITEM_COST, cost);
+        putField(id, ITEM_LOW_ALCH, lowAlch);
+        putField(id, ITEM_HIGH_ALCH, highAlch);
+    }
+
+    private void readNpc(JsonReader in) throws IOException
+    {
+        int id = -1;
+        int flags = PRESENT;
+        int name = -1;
+        int combatLevel = -1;
+        int size = -1;
+        int modelIds = -1;
+        int actions = -1;
+
+        // Field names as written by Gson for NpcMetadata
+        in.beginObject();
+        while (in.hasNext())
+        {
+            switch (in.nextName())
+            {
+                case "id":
+                    id = in.nextInt();
+                    break;
+                case "name":
+                    name = addString(nextString(in));
+                    break;
+                case "combat_level":
+                    combatLevel = in.nextInt();
+                    break;
+                case "model_ids":
+                    modelIds = addIntArray(in);
+                    break;
+                case "size":
+                    size = in.nextInt();
+                    break;
+                case "clickable":
+                    flags |= nextFlag(in, NPC_CLICKABLE);
+                    break;
+                case "actions":
+                    actions = addStringArray(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (!inRange(id))
+        {
+            return;
+        }
+        putField(id, FLAGS, flags);
+        putField(id, NAME, name);
+        putField(id, NPC_COMBAT_LEVEL, combatLevel);
+        putField(id, NPC_SIZE, size);
+        putField(id, NPC_MODEL_IDS, modelIds);
+        putField(id, NPC_ACTIONS, actions);
+    }
+
+    private boolean inRange(int id)
+    {
+        return id >= firstId && id - firstId < recordCount;
+    }
+
+    private void putField(int id, int field, int value)
+    {
+        records.putInt(((id - firstId) * fields + field) * 4, value);
+    }
+
+    private static String nextString(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static int nextFlag(JsonReader in, int flag) throws IOException
+    {
+        return in.nextBoolean() ? flag : 0;
+    }
+
+    private int addString(String value) throws IOException
+    {
+        if (value == null)
+        {
+            return -1;
+        }
+
+        // Strings are only stored once, names are shared by many items
+        Integer offset = strings.get(value);
+        if (offset == null)
+        {
+            offset = table.size();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            table.writeInt(bytes.length);
+            table.write(bytes);
+            strings.put(value, offset);
+        }
+        return offset;
+    }
+
+    private int addIntArray(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return -1;
+        }
+
+        List<Integer> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext())
+        {
+            values.add(in.nextInt());
+        }
+        in.endArray();
+        return addInts(values);
+    }
+
+    private int addStringArray(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return -1;
+        }
+
+        // The strings are added first, the array itself holds their offsets
+        List<Integer> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext())
+        {
+            values.add(addString(nextString(in)));
+        }
+        in.endArray();
+        return addInts(values);
+    }
+
+    private int addInts(List<Integer> values) throws IOException
+    {
+        int offset = table.size();
+        table.writeInt(values.size());
+        for (int value : values)
+        {
+            table.writeInt(value);
+        }
+        return offset;
+    }
+
+    private void write(File binaryFile) throws IOException
+    {
+        table.flush();
+        byte[] tableArray = tableBytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(records.array());
+        crc.update(tableArray);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(HEADER_MAGIC, MAGIC);
+        header.putInt(HEADER_VERSION, VERSION);
+        header.putInt(HEADER_TYPE, type);
+        header.putInt(HEADER_FIRST_ID, firstId);
+        header.putInt(HEADER_RECORD_COUNT, recordCount);
+        header.putInt(HEADER_RECORD_FIELDS, fields);
+        header.putLong(HEADER_TABLE_OFFSET, HEADER_SIZE + (long) records.capacity());
+        header.putLong(HEADER_TABLE_LENGTH, tableArray.length);
+        header.putLong(HEADER_CHECKSUM, crc.getValue());
+
+        // Written next to the old export and moved over it, so readers never see a partial file
+        File tempFile = new File(binaryFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile))
+        {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            buffered.write(header.array());
+            buffered.write(records.array());
+            buffered.write(tableArray);
+            buffered.flush();
+            out.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), binaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
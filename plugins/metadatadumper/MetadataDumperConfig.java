@@ -27,6 +27,10 @@ package net.runelite.client.plugins.metadatadumper;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.plugins.dumputils.IconExporter;
+import net.runelite.client.plugins.dumputils.IconLayout;
+import net.runelite.client.plugins.dumputils.OutputCompression;
 
 @ConfigGroup("metadatadumper")
 public interface MetadataDumperConfig extends Config
@@ -51,7 +55,57 @@ public interface MetadataDumperConfig extends Config
             position = 3,
             keyName = "endConfig",
             name = "Last ID Number",
-            description = "The number to end extraction at"
+            description = "The number to end extraction at, 0 to use every ID in the game cache"
     )
-    default int endConfig() { return 25000; }
+    default int endConfig() { return 0; }
+
+    @ConfigItem(
+            position = 4,
+            keyName = "iconThreads",
+            name = "Icon encoder threads",
+            description = "The number of threads used to encode and write icon images"
+    )
+    @Range(min = 1)
+    default int iconThreads() { return IconExporter.defaultThreads(); }
+
+    @ConfigItem(
+            position = 5,
+            keyName = "idsPerTick",
+            name = "IDs per tick",
+            description = "How many IDs to dump each client tick, lower keeps the client smoother"
+    )
+    @Range(min = 1)
+    default int idsPerTick() { return 100; }
+
+    @ConfigItem(
+            position = 6,
+            keyName = "binaryExport",
+            name = "Binary export",
+            description = "Also write items-metadata.bin and npcs-metadata.bin, a memory-mappable copy of the JSON"
+    )
+    default boolean binaryExport() { return true; }
+
+    @ConfigItem(
+            position = 7,
+            keyName = "iconLayout",
+            name = "Icon layout",
+            description = "Write one PNG per item ID, or each distinct icon once with a manifest mapping item IDs to icons"
+    )
+    default IconLayout iconLayout() { return IconLayout.PER_ID; }
+
+    @ConfigItem(
+            position = 8,
+            keyName = "outputCompression",
+            name = "Output compression",
+            description = "Compress the JSON output while it is written, each compressed file gets a .sha256 checksum"
+    )
+    default OutputCompression outputCompression() { return OutputCompression.NONE; }
+
+    @ConfigItem(
+            position = 9,
+            keyName = "compressionLevel",
+            name = "Compression level",
+            description = "Deflate level, from 1 (fastest) to 9 (smallest)"
+    )
+    default int compressionLevel() { return 6; }
 }
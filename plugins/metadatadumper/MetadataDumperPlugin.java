@@ -24,27 +24,21 @@
  */
 package net.runelite.client.plugins.metadatadumper;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.inject.Provides;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
 import lombok.extern.slf4j.Slf4j;
 import javax.inject.Inject;
 import net.runelite.api.Client;
-import net.runelite.api.ItemComposition;
-import net.runelite.api.NPCComposition;
 import net.runelite.api.events.CommandExecuted;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
-import net.runelite.client.game.ItemManager;
+import net.runelite.client.plugins.dumputils.DumpCheckpoint;
+import net.runelite.client.plugins.dumputils.DumpJob;
+import net.runelite.client.plugins.dumputils.ItemDumpEngine;
+import net.runelite.client.plugins.dumputils.ItemSink;
+import net.runelite.client.plugins.dumputils.ItemSource;
 
 @Slf4j
 @PluginDescriptor(
@@ -54,10 +48,9 @@ import net.runelite.client.game.ItemManager;
         enabledByDefault = false
 )
 
-public class MetadataDumperPlugin extends Plugin
+public class MetadataDumperPlugin extends Plugin implements ItemSink
 {
-    private final Map<Integer, ItemMetadata> items = new HashMap<>();
-    private final Map<Integer, NpcMetadata> npcs = new HashMap<>();
+    private static final String SINK_NAME = "metadata";
 
     @Inject
     private Client client;
@@ -66,7 +59,7 @@ public class MetadataDumperPlugin extends Plugin
     private MetadataDumperConfig config;
 
     @Inject
-    private ItemManager itemManager;
+    private ItemDumpEngine engine;
 
     @Provides
     MetadataDumperConfig provideConfig(ConfigManager configManager)
@@ -78,27 +71,49 @@ public class MetadataDumperPlugin extends Plugin
     protected void startUp() throws Exception
     {
         log.debug(">>> Starting up MetadataDumperPlugin...");
+        engine.register(SINK_NAME, this);
     }
 
     @Override
     protected void shutDown() throws Exception
     {
         log.debug(">>> Shutting down MetadataDumperPlugin...");
+        engine.unregister(SINK_NAME);
     }
 
     @Subscribe
     public void onCommandExecuted(CommandExecuted commandExecuted)
     {
+        // ::items [pause|resume|cancel|status] and ::npcs [pause|resume|cancel|status|rescan]
+        String[] arguments = commandExecuted.getArguments();
         switch (commandExecuted.getCommand())
         {
             case "items":
             {
-                dumpItemMetadata();
+                if (arguments.length > 0)
+                {
+                    engine.control(arguments[0], () -> resumeJob(ItemMetadataJob.NAME), this::getIdsPerTick);
+                }
+                else
+                {
+                    dumpItemMetadata();
+                }
                 break;
             }
             case "npcs":
             {
-                dumpNpcMetadata();
+                if (arguments.length > 0 && arguments[0].equals("rescan"))
+                {
+                    rescanNpcs();
+                }
+                else if (arguments.length > 0)
+                {
+                    engine.control(arguments[0], () -> resumeJob(NpcMetadataJob.NAME), this::getIdsPerTick);
+                }
+                else
+                {
+                    dumpNpcMetadata();
+                }
                 break;
             }
         }
@@ -108,56 +123,15 @@ public class MetadataDumperPlugin extends Plugin
     {
         log.debug(">>> Starting item metadata dump...");
 
-        int start = config.startConfig();
-        int end = config.endConfig();
-
-        for(int itemId=start; itemId<end; itemId++)
+        if (engine.isBusy())
         {
-            log.debug("  > Current item ID: " + itemId);
-
-            // Fetch the item composition
-            ItemComposition itemComposition = client.getItemDefinition(itemId);
-            if (itemComposition != null)
-            {
-                if (itemComposition.getName().equalsIgnoreCase("NULL"))
-                {
-                    // Skip items with a null name
-                    continue;
-                }
-                // Parse the ItemDefinition to an ItemMetadata object
-                ItemMetadata itemMetadata = new ItemMetadata();
-                itemMetadata.populateItemMetadata(itemComposition);
-                items.put(itemId, itemMetadata);
-            }
-            // If user wants to dump item icon image
-            if (config.dumpItemIcons())
-            {
-                // Try to save the item icon
-                try
-                {
-                    String directory = "items-icons";
-                    File dir = new File(directory);
-                    if (!dir.exists()) dir.mkdirs();
-                    String outName = "items-icons/"  + itemId + ".png";
-                    File outputFile = new File(outName);
-                    BufferedImage iconImage = itemManager.getImage(itemId);
-                    ImageIO.write(iconImage, "png", outputFile);
-                } catch (IOException e)
-                {
-                    e.printStackTrace();
-                }
-            }
+            engine.sendMessage(engine.getStatus());
+            return;
         }
 
-        // Initialize Gson builder, then generate JSON
-        Gson gson = new GsonBuilder().create();
-        String json = gson.toJson(items);
-
-        // Save items_metadata.json file will all item metadata
-        String summaryFileOut = "items-metadata.json";
-        try (FileWriter fw = new FileWriter(summaryFileOut))
+        try
         {
-            fw.write(json);
+            engine.start(start(engine.newSource()), this::getIdsPerTick);
         }
         catch (IOException e)
         {
@@ -169,42 +143,67 @@ public class MetadataDumperPlugin extends Plugin
     {
         log.debug(">>> Starting npc metadata dump...");
 
-        int start = config.startConfig();
-        int end = config.endConfig();
-
-        for(int npcId=start; npcId<end; npcId++)
+        if (engine.isBusy())
         {
-            log.debug("  > Current NPC ID: " + npcId);
+            engine.sendMessage(engine.getStatus());
+            return;
+        }
 
-            // Fetch the item composition
-            NPCComposition npcComposition = client.getNpcDefinition(npcId);
-            if (npcComposition != null)
-            {
-                if (npcComposition.getName().equalsIgnoreCase("NULL"))
-                {
-                    // Skip npcs with a null name
-                    continue;
-                }
-                // Parse the NPCComposition to an NpcMetadata object
-                NpcMetadata npcMetadata = new NpcMetadata();
-                npcMetadata.populateNpcMetadata(npcComposition);
-                npcs.put(npcId, npcMetadata);
-            }
+        try
+        {
+            engine.start(new NpcMetadataJob(client, config, null), this::getIdsPerTick);
         }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
 
-        // Initialize Gson builder, then generate JSON
-        Gson gson = new GsonBuilder().create();
-        String json = gson.toJson(npcs);
+    private void rescanNpcs()
+    {
+        if (engine.isBusy())
+        {
+            engine.sendMessage(engine.getStatus());
+            return;
+        }
+        NpcMetadataJob.discardIdSpace();
+        engine.sendMessage("The next NPC dump will fetch every NPC ID again");
+    }
 
-        // Save items_metadata.json file will all item metadata
-        String summaryFileOut = "npcs-metadata.json";
-        try (FileWriter fw = new FileWriter(summaryFileOut))
+    private DumpJob resumeJob(String name)
+    {
+        try
         {
-            fw.write(json);
+            if (name.equals(ItemMetadataJob.NAME))
+            {
+                return resume(engine.newSource());
+            }
+            DumpCheckpoint checkpoint = DumpCheckpoint.load(name);
+            return checkpoint != null ? new NpcMetadataJob(client, config, checkpoint) : null;
         }
         catch (IOException e)
         {
             e.printStackTrace();
+            return null;
         }
     }
+
+    @Override
+    public DumpJob start(ItemSource source) throws IOException
+    {
+        return new ItemMetadataJob(source, config, null);
+    }
+
+    @Override
+    public DumpJob resume(ItemSource source) throws IOException
+    {
+        DumpCheckpoint checkpoint = DumpCheckpoint.load(ItemMetadataJob.NAME);
+        return checkpoint != null ? new ItemMetadataJob(source, config, checkpoint) : null;
+    }
+
+    @Override
+    public int getIdsPerTick()
+    {
+        return config.idsPerTick();
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.metadatadumper;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.NPCComposition;
+import net.runelite.client.plugins.dumputils.DumpCheckpoint;
+import net.runelite.client.plugins.dumputils.DumpMetrics;
+import net.runelite.client.plugins.dumputils.IdSpace;
+import net.runelite.client.plugins.dumputils.JsonDumpJob;
+
+/*
+ * Dumps npcs-metadata.json
+ */
+@Slf4j
+class NpcMetadataJob extends JsonDumpJob
+{
+    static final String NAME = "npcs-metadata";
+
+    private static final File ID_SPACE_FILE = new File("npcs-id-space.dat");
+
+    private final Client client;
+    private final IdSpace idSpace;
+    private final Gson gson = new GsonBuilder().create();
+    private final boolean binaryExport;
+
+    NpcMetadataJob(Client client, MetadataDumperConfig config, DumpCheckpoint checkpoint) throws IOException
+    {
+        this(client, config, checkpoint, IdSpace.load(client, IdSpace.NPCS, ID_SPACE_FILE));
+    }
+
+    /*
+     * Forgets the NPC IDs earlier dumps found to be empty
+     */
+    static void discardIdSpace()
+    {
+        IdSpace.discard(ID_SPACE_FILE);
+    }
+
+    private NpcMetadataJob(Client client, MetadataDumperConfig config, DumpCheckpoint checkpoint, IdSpace idSpace) throws IOException
+    {
+        super(NAME, new File("npcs-metadata.json"),
+                checkpoint != null ? checkpoint.getStart() : config.startConfig(),
+                checkpoint != null ? checkpoint.getEnd() : idSpace.resolveEnd(config.endConfig()),
+                checkpoint,
+                null,
+                config.outputCompression(),
+                config.compressionLevel());
+        this.client = client;
+        this.idSpace = idSpace;
+        this.binaryExport = config.binaryExport();
+    }
+
+    @Override
+    protected void capture(int npcId) throws InterruptedException
+    {
+        DumpMetrics metrics = getMetrics();
+
+        // Found empty by an earlier dump
+        if (idSpace.isEmpty(npcId))
+        {
+            metrics.skipped();
+            return;
+        }
+
+        // Fetch the item composition
+        long start = DumpMetrics.start();
+        NPCComposition npcComposition = client.getNpcDefinition(npcId);
+        metrics.record(DumpMetrics.Phase.FETCH, start);
+        if (npcComposition != null)
+        {
+            if (IdSpace.isNullName(npcComposition.getName()))
+            {
+                // Skip npcs with a null name
+                idSpace.markEmpty(npcId);
+                metrics.skipped();
+                return;
+            }
+            // Parse the NPCComposition to an NpcMetadata object, the JSON is
+            // generated by the pipeline workers
+            start = DumpMetrics.start();
+            NpcMetadata npcMetadata = new NpcMetadata();
+            npcMetadata.populateNpcMetadata(npcComposition);
+            metrics.record(DumpMetrics.Phase.DERIVE, start);
+            submit(npcId, () -> gson.toJson(npcMetadata));
+        }
+    }
+
+    @Override
+    protected void finish(boolean complete)
+    {
+        idSpace.save();
+        super.finish(complete);
+    }
+
+    @Override
+    protected void completed(File outputFile) throws IOException
+    {
+        if (binaryExport)
+        {
+            MetadataBinaryWriter.writeNpcs(outputFile, getCompression(), new File("npcs-metadata.bin"), getStart(), getEnd());
+        }
+    }
+}
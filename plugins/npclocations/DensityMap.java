@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/*
+ * How many different NPCs were seen on each tile, as an int per tile in one
+ * array per map region and plane. Built from a compacted observation log at
+ * export time, which has each (NPC ID, tile) pair once, so it covers every
+ * session and needs no memory while the client runs. Exported as a tile
+ * pyramid of PNG images, 64x64 pixels each: at zoom 0 a pixel is one tile and
+ * an image one region, and every zoom level above halves the resolution, so
+ * a viewer only loads the images for its zoom and viewport. Export time
+ * depends on the number of regions seen, not on the length of the log.
+ */
+class DensityMap
+{
+    static final int MAX_ZOOM = 6;
+    private static final int SIZE = 64;
+    private static final int PLANES = 4;
+
+    private final Map<Integer, int[][]> regions = new HashMap<>();
+
+    // Most sightings are in the same region as the last one
+    private int lastRegionId = -1;
+    private int[][] lastRegion;
+
+    void add(int location)
+    {
+        int regionId = NpcSpatialIndex.regionId(location);
+        if (regionId != lastRegionId)
+        {
+            lastRegion = regions.computeIfAbsent(regionId, id -> new int[PLANES][]);
+            lastRegionId = regionId;
+        }
+
+        int plane = LocationSet.getPlane(location);
+        if (lastRegion[plane] == null)
+        {
+            lastRegion[plane] = new int[SIZE * SIZE];
+        }
+        lastRegion[plane][(LocationSet.getY(location) & (SIZE - 1)) * SIZE + (LocationSet.getX(location) & (SIZE - 1))]++;
+    }
+
+    /*
+     * Writes <directory>/<plane>/<zoom>/<x>_<y>.png for every image with a
+     * sighting, where x and y are the world tile coordinates shifted right by
+     * zoom + 6, and index.json with the highest count at each zoom. Pixel
+     * alpha is the count on a log scale against that highest count. North is
+     * at the top of each image. Anything an earlier export left in directory
+     * is deleted first, as every image is scaled against the new counts.
+     */
+    void export(File directory) throws IOException
+    {
+        deleteDirectory(directory);
+        directory.mkdirs();
+
+        long[] maxCounts = new long[MAX_ZOOM + 1];
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++)
+        {
+            // Every plane is scaled against the same highest count
+            List<Map<Long, long[]>> planes = new ArrayList<>();
+            for (int plane = 0; plane < PLANES; plane++)
+            {
+                Map<Long, long[]> images = aggregate(plane, zoom);
+                for (long[] counts : images.values())
+                {
+                    for (long count : counts)
+                    {
+                        maxCounts[zoom] = Math.max(maxCounts[zoom], count);
+                    }
+                }
+                planes.add(images);
+            }
+
+            for (int plane = 0; plane < PLANES; plane++)
+            {
+                File zoomDirectory = new File(directory, plane + "/" + zoom);
+                for (Map.Entry<Long, long[]> image : planes.get(plane).entrySet())
+                {
+                    zoomDirectory.mkdirs();
+                    int imageX = (int) (image.getKey() >> 32);
+                    int imageY = image.getKey().intValue();
+                    File imageFile = new File(zoomDirectory, imageX + "_" + imageY + ".png");
+                    ImageIO.write(render(image.getValue(), maxCounts[zoom]), "png", imageFile);
+                }
+            }
+        }
+
+        try (FileWriter fw = new FileWriter(new File(directory, "index.json")))
+        {
+            StringBuilder max = new StringBuilder();
+            for (int zoom = 0; zoom <= MAX_ZOOM; zoom++)
+            {
+                max.append(zoom > 0 ? "," : "").append(maxCounts[zoom]);
+            }
+            fw.write("{\"imageSize\":" + SIZE + ",\"maxZoom\":" + MAX_ZOOM + ",\"maxCounts\":[" + max + "]}");
+        }
+    }
+
+    private static void deleteDirectory(File directory) throws IOException
+    {
+        if (!directory.exists())
+        {
+            return;
+        }
+
+        // Deepest first, so each directory is empty by the time it is deleted
+        try (Stream<Path> paths = Files.walk(directory.toPath()))
+        {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+            {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /*
+     * Sums the counts of one plane into the images of a zoom level, keyed by
+     * image x in the high and image y in the low 32 bits
+     */
+    private Map<Long, long[]> aggregate(int plane, int zoom)
+    {
+        Map<Long, long[]> images = new HashMap<>();
+        for (Map.Entry<Integer, int[][]> region : regions.entrySet())
+        {
+            int[] counts = region.getValue()[plane];
+            if (counts == null)
+            {
+                continue;
+            }
+
+            int baseX = (region.getKey() >> 8) * SIZE;
+            int baseY = (region.getKey() & 0xff) * SIZE;
+            long imageKey = (long) (baseX >> (zoom + 6)) << 32 | (baseY >> (zoom + 6));
+            long[] image = images.computeIfAbsent(imageKey, key -> new long[SIZE * SIZE]);
+            for (int i = 0; i < counts.length; i++)
+            {
+                if (counts[i] != 0)
+                {
+                    int pixelX = ((baseX + i % SIZE) >> zoom) & (SIZE - 1);
+                    int pixelY = ((baseY + i / SIZE) >> zoom) & (SIZE - 1);
+                    image[pixelY * SIZE + pixelX] += counts[i];
+                }
+            }
+        }
+        return images;
+    }
+
+    private static BufferedImage render(long[] counts, long maxCount)
+    {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        double scale = Math.log1p(maxCount);
+        for (int i = 0; i < counts.length; i++)
+        {
+            if (counts[i] != 0)
+            {
+                int alpha = (int) Math.max(1, Math.round(255 * Math.log1p(counts[i]) / scale));
+                image.setRGB(i % SIZE, SIZE - 1 - i / SIZE, alpha << 24 | 0xff0000);
+            }
+        }
+        return image;
+    }
+}
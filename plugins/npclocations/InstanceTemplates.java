@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import net.runelite.api.Client;
+import net.runelite.api.Constants;
+
+/*
+ * Translates tiles inside an instance back to the tiles of the template area
+ * the instance was copied from, so sightings from every run of a raid or
+ * minigame land on the same tiles. The template chunk layout is read from the
+ * client once per scene load and decoded into arrays, so translating a tile
+ * is a few array reads. Follows WorldPoint.fromLocalInstance.
+ */
+class InstanceTemplates
+{
+    private static final int SCENE_CHUNKS = Constants.SCENE_SIZE / Constants.CHUNK_SIZE;
+    private static final int NO_TEMPLATE = -1;
+
+    // Indexed by plane, then scene chunk x * SCENE_CHUNKS + scene chunk y,
+    // null outside instances
+    private int[][] templateX;
+    private int[][] templateY;
+    private int[][] templatePlane;
+    private int[][] rotation;
+    private int baseX;
+    private int baseY;
+
+    /*
+     * Reads the template chunks of the loaded scene, call on the client thread
+     * once the scene has loaded
+     */
+    void load(Client client)
+    {
+        if (!client.isInInstancedRegion())
+        {
+            templateX = null;
+            return;
+        }
+
+        int[][][] chunks = client.getInstanceTemplateChunks();
+        templateX = new int[Constants.MAX_Z][SCENE_CHUNKS * SCENE_CHUNKS];
+        templateY = new int[Constants.MAX_Z][SCENE_CHUNKS * SCENE_CHUNKS];
+        templatePlane = new int[Constants.MAX_Z][SCENE_CHUNKS * SCENE_CHUNKS];
+        rotation = new int[Constants.MAX_Z][SCENE_CHUNKS * SCENE_CHUNKS];
+        for (int plane = 0; plane < Constants.MAX_Z; plane++)
+        {
+            for (int chunkX = 0; chunkX < SCENE_CHUNKS; chunkX++)
+            {
+                for (int chunkY = 0; chunkY < SCENE_CHUNKS; chunkY++)
+                {
+                    int chunk = chunks[plane][chunkX][chunkY];
+                    int i = chunkX * SCENE_CHUNKS + chunkY;
+                    if (chunk == NO_TEMPLATE)
+                    {
+                        templateX[plane][i] = NO_TEMPLATE;
+                        continue;
+                    }
+                    rotation[plane][i] = chunk >> 1 & 0x3;
+                    templateY[plane][i] = (chunk >> 3 & 0x7FF) * Constants.CHUNK_SIZE;
+                    templateX[plane][i] = (chunk >> 14 & 0x3FF) * Constants.CHUNK_SIZE;
+                    templatePlane[plane][i] = chunk >> 24 & 0x3;
+                }
+            }
+        }
+        baseX = client.getBaseX();
+        baseY = client.getBaseY();
+    }
+
+    /*
+     * Returns the packed template tile of a packed tile, or the tile itself
+     * outside instances
+     */
+    int translate(int location)
+    {
+        if (templateX == null)
+        {
+            return location;
+        }
+
+        int sceneX = LocationSet.getX(location) - baseX;
+        int sceneY = LocationSet.getY(location) - baseY;
+        int plane = LocationSet.getPlane(location);
+        if (sceneX < 0 || sceneY < 0 || sceneX >= Constants.SCENE_SIZE || sceneY >= Constants.SCENE_SIZE)
+        {
+            return location;
+        }
+
+        int i = (sceneX / Constants.CHUNK_SIZE) * SCENE_CHUNKS + sceneY / Constants.CHUNK_SIZE;
+        if (templateX[plane][i] == NO_TEMPLATE)
+        {
+            return location;
+        }
+
+        // The template chunk is stored rotated, turn the tile back the other way
+        int x = sceneX & (Constants.CHUNK_SIZE - 1);
+        int y = sceneY & (Constants.CHUNK_SIZE - 1);
+        int last = Constants.CHUNK_SIZE - 1;
+        int rotatedX;
+        int rotatedY;
+        switch (4 - rotation[plane][i])
+        {
+            case 1:
+                rotatedX = y;
+                rotatedY = last - x;
+                break;
+            case 2:
+                rotatedX = last - x;
+                rotatedY = last - y;
+                break;
+            case 3:
+                rotatedX = last - y;
+                rotatedY = x;
+                break;
+            default:
+                rotatedX = x;
+                rotatedY = y;
+                break;
+        }
+        return LocationSet.pack(templateX[plane][i] + rotatedX, templateY[plane][i] + rotatedY, templatePlane[plane][i]);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * The distinct world locations an NPC was seen at, in the order they were
+ * first seen. Each location is packed into an int (plane, x and y) and held in
+ * an open-addressing hash table, so checking a location costs the same however
+ * many are already stored, and adding one allocates nothing until the table
+ * grows. x and y must be below 16384, which covers the world map and instances.
+ */
+class LocationSet
+{
+    private static final int EMPTY = -1;
+    private static final int COORD_BITS = 14;
+    private static final int COORD_MASK = (1 << COORD_BITS) - 1;
+
+    private int[] table = newTable(16);
+    private int[] locations = new int[8];
+    private int size;
+
+    static int pack(int x, int y, int plane)
+    {
+        return (plane & 3) << (COORD_BITS * 2) | (x & COORD_MASK) << COORD_BITS | (y & COORD_MASK);
+    }
+
+    static int getX(int location)
+    {
+        return location >>> COORD_BITS & COORD_MASK;
+    }
+
+    static int getY(int location)
+    {
+        return location & COORD_MASK;
+    }
+
+    static int getPlane(int location)
+    {
+        return location >>> (COORD_BITS * 2);
+    }
+
+    /*
+     * Adds a packed location, returns false if it was already in the set
+     */
+    boolean add(int location)
+    {
+        int mask = table.length - 1;
+        int slot = hash(location) & mask;
+        while (table[slot] != EMPTY)
+        {
+            if (table[slot] == location)
+            {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = location;
+        if (size == locations.length)
+        {
+            locations = Arrays.copyOf(locations, size * 2);
+        }
+        locations[size++] = location;
+
+        // Kept at most half full, so probe runs stay short
+        if (size * 2 > table.length)
+        {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    boolean contains(int location)
+    {
+        int mask = table.length - 1;
+        int slot = hash(location) & mask;
+        while (table[slot] != EMPTY)
+        {
+            if (table[slot] == location)
+            {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /*
+     * Returns the packed location first seen index-th
+     */
+    int get(int index)
+    {
+        return locations[index];
+    }
+
+    private void rehash(int capacity)
+    {
+        table = newTable(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < size; i++)
+        {
+            int slot = hash(locations[i]) & mask;
+            while (table[slot] != EMPTY)
+            {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = locations[i];
+        }
+    }
+
+    private static int hash(int location)
+    {
+        // Spreads neighbouring tiles across the table
+        int h = location * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int[] newTable(int capacity)
+    {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    /*
+     * Reads and writes the set as a list of [x, y, plane] lists, the format
+     * npcs-locations.json has always used
+     */
+    static class Adapter extends TypeAdapter<LocationSet>
+    {
+        @Override
+        public void write(JsonWriter out, LocationSet set) throws IOException
+        {
+            out.beginArray();
+            for (int i = 0; i < set.size(); i++)
+            {
+                int location = set.get(i);
+                out.beginArray();
+                out.value(getX(location));
+                out.value(getY(location));
+                out.value(getPlane(location));
+                out.endArray();
+            }
+            out.endArray();
+        }
+
+        @Override
+        public LocationSet read(JsonReader in) throws IOException
+        {
+            LocationSet set = new LocationSet();
+            in.beginArray();
+            while (in.hasNext())
+            {
+                in.beginArray();
+                int x = in.nextInt();
+                int y = in.nextInt();
+                int plane = in.nextInt();
+                in.endArray();
+                set.add(pack(x, y, plane));
+            }
+            in.endArray();
+            return set;
+        }
+    }
+}
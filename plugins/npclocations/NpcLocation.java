@@ -25,16 +25,10 @@
 package net.runelite.client.plugins.npclocations;
 
 import lombok.Getter;
-import lombok.Setter;
 import net.runelite.api.NPC;
-import java.util.ArrayList;
-import java.util.List;
 
 public class NpcLocation
 {
-    @Getter
-    private int npcIndex;
-
     @Getter
     private int npcID;
 
@@ -45,18 +39,21 @@ public class NpcLocation
     private int npcCombatLevel;
 
     /*
-     * A list of the possible world locations of the NPC
+     * The distinct world locations of the NPC
      */
     @Getter
-    @Setter
-    public List<List> npcWorldLocations;
+    private final LocationSet npcWorldLocations;
 
     NpcLocation(NPC npc)
     {
-        this.npcIndex = npc.getIndex();
-        this.npcID = npc.getId();
-        this.npcName = npc.getName();
-        this.npcCombatLevel = npc.getCombatLevel();
-        this.npcWorldLocations = new ArrayList<>();
+        this(npc.getId(), npc.getName(), npc.getCombatLevel());
+    }
+
+    NpcLocation(int npcID, String npcName, int npcCombatLevel)
+    {
+        this.npcID = npcID;
+        this.npcName = npcName;
+        this.npcCombatLevel = npcCombatLevel;
+        this.npcWorldLocations = new LocationSet();
     }
 }
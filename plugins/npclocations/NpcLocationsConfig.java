@@ -27,6 +27,7 @@ package net.runelite.client.plugins.npclocations;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.plugins.dumputils.OutputCompression;
 
 @ConfigGroup("npclocations")
 public interface NpcLocationsConfig extends Config
@@ -38,4 +39,28 @@ public interface NpcLocationsConfig extends Config
             description = "Enable monitoring of NPCs and extraction of world location."
     )
     default boolean scrapeNpcLocation() { return true; }
+
+    @ConfigItem(
+            position = 2,
+            keyName = "outputCompression",
+            name = "Output compression",
+            description = "Compress npcs-locations.json while it is written, with a .sha256 checksum"
+    )
+    default OutputCompression outputCompression() { return OutputCompression.NONE; }
+
+    @ConfigItem(
+            position = 3,
+            keyName = "compressionLevel",
+            name = "Compression level",
+            description = "Deflate level, from 1 (fastest) to 9 (smallest)"
+    )
+    default int compressionLevel() { return 6; }
+
+    @ConfigItem(
+            position = 4,
+            keyName = "maxTilesInMemory",
+            name = "Tiles kept in memory",
+            description = "Clear the in-memory NPC locations past this many tiles, every sighting is still in the observation log"
+    )
+    default int maxTilesInMemory() { return 500000; }
 }
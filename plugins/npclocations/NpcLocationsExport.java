@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Map;
+import lombok.Getter;
+import net.runelite.client.plugins.dumputils.DumpOutputStream;
+import net.runelite.client.plugins.dumputils.OutputCompression;
+
+/*
+ * Writes npcs-locations.json, npcs-spawn-areas.json, npcs-regions/ and the
+ * npcs-heatmap/ density map from a compacted observation log. The log is sorted by NPC ID, so it is read one
+ * NPC at a time into a small NpcSpatialIndex and each NPC is streamed out
+ * before the next is read. Spawn areas are kept up to date as tiles are seen,
+ * so they are written from a copy of them instead of rebuilt from the log. The region files need every NPC before they can
+ * be written, so the NPCs of each region are first appended to a part file
+ * per region and the region files are put together from those at the end.
+ * The density map is filled in from the same pass and written last.
+ */
+class NpcLocationsExport
+{
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocationSet.class, new LocationSet.Adapter())
+            .create();
+    private final OutputCompression compression;
+    private final int compressionLevel;
+    private final NpcSpawnAreas npcSpawnAreas;
+    @Getter
+    private final File locationsFile;
+    private final File spawnAreasFile;
+    private final File regionsDirectory;
+    private final File heatmapDirectory;
+    private final DensityMap density = new DensityMap();
+
+    // The NPC being read from the log
+    private final NpcSpatialIndex npc = new NpcSpatialIndex();
+    private int npcId = -1;
+    @Getter
+    private long tileCount;
+
+    NpcLocationsExport(OutputCompression compression, int compressionLevel, NpcSpawnAreas npcSpawnAreas)
+    {
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+        this.npcSpawnAreas = npcSpawnAreas;
+        this.locationsFile = new File(compression.apply("npcs-locations.json"));
+        this.spawnAreasFile = new File(compression.apply("npcs-spawn-areas.json"));
+        this.regionsDirectory = new File("npcs-regions");
+        this.heatmapDirectory = new File("npcs-heatmap");
+    }
+
+    /*
+     * Writes every file from a compacted log and its NPC file
+     */
+    void write(File snapshot) throws IOException
+    {
+        Map<Integer, String[]> npcNames = NpcObservationLog.readNpcs(NpcObservationLog.npcsFile(snapshot));
+        File partsDirectory = Files.createTempDirectory("npcs-regions").toFile();
+        try
+        {
+            try (Writer lw = DumpOutputStream.openWriter(locationsFile, compression, compressionLevel);
+                 JsonWriter locations = gson.newJsonWriter(lw);
+                 Writer sw = DumpOutputStream.openWriter(spawnAreasFile, compression, compressionLevel);
+                 JsonWriter spawnAreas = gson.newJsonWriter(sw))
+            {
+                locations.beginObject();
+                spawnAreas.beginObject();
+                NpcObservationLog.read(snapshot, (npcId, location, tick) ->
+                {
+                    if (npcId != this.npcId)
+                    {
+                        writeNpc(locations, spawnAreas, partsDirectory);
+                        this.npcId = npcId;
+                    }
+
+                    String[] fields = npcNames.get(npcId);
+                    String npcName = fields != null ? fields[2] : null;
+                    int npcCombatLevel = fields != null ? Integer.parseInt(fields[1]) : 0;
+                    npc.add(npcId, npcName, npcCombatLevel, location);
+                    density.add(location);
+                });
+                writeNpc(locations, spawnAreas, partsDirectory);
+                locations.endObject();
+                spawnAreas.endObject();
+            }
+
+            writeRegions(partsDirectory);
+            density.export(heatmapDirectory);
+        }
+        finally
+        {
+            File[] parts = partsDirectory.listFiles();
+            if (parts != null)
+            {
+                for (File part : parts)
+                {
+                    part.delete();
+                }
+            }
+            partsDirectory.delete();
+        }
+    }
+
+    private void writeNpc(JsonWriter locations, JsonWriter spawnAreas, File partsDirectory) throws IOException
+    {
+        NpcLocation npcLocation = npc.get(npcId);
+        if (npcLocation == null)
+        {
+            return;
+        }
+
+        locations.name(Integer.toString(npcId));
+        gson.toJson(npcLocation, NpcLocation.class, locations);
+
+        // The tiles of each NPC grouped into rectangles, far smaller than npcs-locations.json
+        SpawnAreas areas = npcSpawnAreas.get(npcId);
+        if (areas != null)
+        {
+            JsonObject spawnArea = newNpcJson(npcLocation);
+            spawnArea.add("npcSpawnAreas", gson.toJsonTree(areas.getAreas()));
+            spawnAreas.name(Integer.toString(npcId));
+            gson.toJson(spawnArea, spawnAreas);
+        }
+
+        // One line per NPC in each region's part file, the JSON has no line breaks
+        for (NpcSpatialIndex.Region region : npc.getRegions())
+        {
+            JsonObject regionNpc = newNpcJson(npcLocation);
+            regionNpc.add("npcWorldLocations", gson.toJsonTree(region.getLocations(npcId)));
+            try (Writer fw = new FileWriter(new File(partsDirectory, Integer.toString(region.getRegionId())), true))
+            {
+                fw.write(npcId + "\t" + gson.toJson(regionNpc) + "\n");
+            }
+        }
+
+        tileCount += npc.getTileCount();
+        npc.clear();
+    }
+
+    private static JsonObject newNpcJson(NpcLocation npcLocation)
+    {
+        JsonObject json = new JsonObject();
+        json.addProperty("npcID", npcLocation.getNpcID());
+        json.addProperty("npcName", npcLocation.getNpcName());
+        json.addProperty("npcCombatLevel", npcLocation.getNpcCombatLevel());
+        return json;
+    }
+
+    /*
+     * One file per map region, so map tooling only loads the regions it shows
+     */
+    private void writeRegions(File partsDirectory) throws IOException
+    {
+        File[] parts = partsDirectory.listFiles();
+        if (parts == null)
+        {
+            return;
+        }
+
+        regionsDirectory.mkdirs();
+        for (File part : parts)
+        {
+            File regionFileOut = new File(regionsDirectory, compression.apply(part.getName() + ".json"));
+            try (BufferedReader reader = new BufferedReader(new FileReader(part));
+                 Writer fw = DumpOutputStream.openWriter(regionFileOut, compression, compressionLevel);
+                 JsonWriter out = gson.newJsonWriter(fw))
+            {
+                out.beginObject();
+                out.name("regionId").value(Integer.parseInt(part.getName()));
+                out.name("npcs");
+                out.beginObject();
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    int tab = line.indexOf('\t');
+                    out.name(line.substring(0, tab)).jsonValue(line.substring(tab + 1));
+                }
+                out.endObject();
+                out.endObject();
+            }
+        }
+    }
+}
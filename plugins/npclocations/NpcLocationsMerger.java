@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.plugins.dumputils.DumpOutputStream;
+import net.runelite.client.plugins.dumputils.OutputCompression;
+
+/*
+ * Merges NPC location dumps and observation logs from any number of sessions
+ * into one npcs-locations.json, or one sorted observation stream, without
+ * loading them whole. Every input is read as a stream of (NPC ID, tile) pairs
+ * packed into longs, each with the tick it was seen at, which are sorted in
+ * runs of up to RUN_SIZE and written to temporary run files. The runs are then
+ * merged with a k-way merge, dropping duplicates as they meet and keeping the
+ * earliest tick, and the result is streamed out grouped by NPC ID. More than
+ * MAX_FAN_IN runs are first merged in groups into longer runs. Memory holds
+ * one run, which only grows as large as the input needs, MAX_FAN_IN buffered
+ * readers and the name of each NPC ID, however large the inputs are.
+ */
+@Slf4j
+class NpcLocationsMerger implements AutoCloseable
+{
+    private static final int INITIAL_RUN_SIZE = 1 << 14;
+    private static final int RUN_SIZE = 1 << 20;
+    // Runs merged in one pass, each reader holds a 64 KB buffer
+    private static final int MAX_FAN_IN = 64;
+
+    private static class RunReader implements AutoCloseable
+    {
+        private final DataInputStream in;
+        private long current;
+        private int tick;
+
+        private RunReader(File file) throws IOException
+        {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+        }
+
+        /*
+         * Reads the next pair into current, returns false at the end of the run
+         */
+        private boolean next() throws IOException
+        {
+            try
+            {
+                current = in.readLong();
+                tick = in.readInt();
+                return true;
+            }
+            catch (EOFException e)
+            {
+                in.close();
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            in.close();
+        }
+    }
+
+    private final File tempDirectory;
+    private long[] run = new long[INITIAL_RUN_SIZE];
+    private int[] runTicks = new int[INITIAL_RUN_SIZE];
+    private int runSize;
+    private final List<File> runs = new ArrayList<>();
+    private int runFiles;
+    private final Map<Integer, NpcLocation> npcs = new HashMap<>();
+    @Getter
+    private long pairsRead;
+
+    NpcLocationsMerger() throws IOException
+    {
+        this.tempDirectory = Files.createTempDirectory("npcs-merge").toFile();
+    }
+
+    /*
+     * Adds an observation log, or a npcs-locations.json written with or without compression
+     */
+    void add(File file) throws IOException
+    {
+        if (file.getName().endsWith(".log"))
+        {
+            addLog(file);
+        }
+        else
+        {
+            OutputCompression compression = file.getName().endsWith(OutputCompression.GZIP.getExtension())
+                    ? OutputCompression.GZIP
+                    : OutputCompression.NONE;
+            try (Reader reader = compression.openReader(file))
+            {
+                addDump(new JsonReader(reader));
+            }
+        }
+    }
+
+    private void addLog(File file) throws IOException
+    {
+        for (Map.Entry<Integer, String[]> npc : NpcObservationLog.readNpcs(NpcObservationLog.npcsFile(file)).entrySet())
+        {
+            String[] fields = npc.getValue();
+            addNpc(npc.getKey(), fields[2], Integer.parseInt(fields[1]));
+        }
+
+        NpcObservationLog.read(file, this::addPair);
+    }
+
+    private void addDump(JsonReader in) throws IOException
+    {
+        in.beginObject();
+        while (in.hasNext())
+        {
+            // Older dumps are keyed by NPC index, the npcID field is always the ID
+            int npcId = Integer.parseInt(in.nextName());
+            String npcName = null;
+            int npcCombatLevel = 0;
+
+            in.beginObject();
+            while (in.hasNext())
+            {
+                switch (in.nextName())
+                {
+                    case "npcID":
+                        npcId = in.nextInt();
+                        break;
+                    case "npcName":
+                        npcName = in.nextString();
+                        break;
+                    case "npcCombatLevel":
+                        npcCombatLevel = in.nextInt();
+                        break;
+                    case "npcWorldLocations":
+                        addNpc(npcId, npcName, npcCombatLevel);
+                        in.beginArray();
+                        while (in.hasNext())
+                        {
+                            in.beginArray();
+                            int x = in.nextInt();
+                            int y = in.nextInt();
+                            int plane = in.nextInt();
+                            in.endArray();
+                            // Dumps have no ticks
+                            addPair(npcId, LocationSet.pack(x, y, plane), 0);
+                        }
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+        }
+        in.endObject();
+    }
+
+    private void addNpc(int npcId, String npcName, int npcCombatLevel)
+    {
+        npcs.putIfAbsent(npcId, new NpcLocation(npcId, npcName, npcCombatLevel));
+    }
+
+    private void addPair(int npcId, int location, int tick) throws IOException
+    {
+        run[runSize] = (long) npcId << 32 | location;
+        runTicks[runSize] = tick;
+        runSize++;
+        pairsRead++;
+        if (runSize == run.length)
+        {
+            if (runSize < RUN_SIZE)
+            {
+                run = Arrays.copyOf(run, runSize * 2);
+                runTicks = Arrays.copyOf(runTicks, runSize * 2);
+            }
+            else
+            {
+                writeRun();
+            }
+        }
+    }
+
+    private void writeRun() throws IOException
+    {
+        sortRun(0, runSize - 1);
+        File runFile = newRunFile();
+        try (DataOutputStream out = openRun(runFile))
+        {
+            for (int i = 0; i < runSize; i++)
+            {
+                // Sorted by tick within a pair, so the first is the earliest
+                if (i == 0 || run[i] != run[i - 1])
+                {
+                    out.writeLong(run[i]);
+                    out.writeInt(runTicks[i]);
+                }
+            }
+        }
+        runs.add(runFile);
+        runSize = 0;
+    }
+
+    private File newRunFile()
+    {
+        return new File(tempDirectory, "run-" + runFiles++);
+    }
+
+    private static DataOutputStream openRun(File runFile) throws IOException
+    {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), 65536));
+    }
+
+    /*
+     * Sorts run[low..high] by pair then tick, moving the ticks with their pairs
+     */
+    private void sortRun(int low, int high)
+    {
+        while (high - low > 16)
+        {
+            int middle = (low + high) >>> 1;
+            long pivot = run[middle];
+            int pivotTick = runTicks[middle];
+            int i = low;
+            int j = high;
+            while (i <= j)
+            {
+                while (compare(i, pivot, pivotTick) < 0)
+                {
+                    i++;
+                }
+                while (compare(j, pivot, pivotTick) > 0)
+                {
+                    j--;
+                }
+                if (i <= j)
+                {
+                    swap(i++, j--);
+                }
+            }
+
+            // Recurse into the smaller side, loop on the larger
+            if (j - low < high - i)
+            {
+                sortRun(low, j);
+                low = i;
+            }
+            else
+            {
+                sortRun(i, high);
+                high = j;
+            }
+        }
+
+        for (int i = low + 1; i <= high; i++)
+        {
+            for (int j = i; j > low && compare(j, run[j - 1], runTicks[j - 1]) < 0; j--)
+            {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private int compare(int i, long pair, int tick)
+    {
+        int c = Long.compare(run[i], pair);
+        return c != 0 ? c : Integer.compare(runTicks[i], tick);
+    }
+
+    private void swap(int i, int j)
+    {
+        long pair = run[i];
+        run[i] = run[j];
+        run[j] = pair;
+        int tick = runTicks[i];
+        runTicks[i] = runTicks[j];
+        runTicks[j] = tick;
+    }
+
+    /*
+     * Merges everything added into output, and returns the number of distinct
+     * (NPC ID, tile) pairs written
+     */
+    long writeTo(File output, OutputCompression compression, int compressionLevel) throws IOException
+    {
+        try (Writer fw = DumpOutputStream.openWriter(output, compression, compressionLevel);
+             JsonWriter out = new JsonWriter(fw))
+        {
+            out.beginObject();
+            int[] currentNpc = {-1};
+            long written = merge((npcId, location, tick) ->
+            {
+                if (npcId != currentNpc[0])
+                {
+                    if (currentNpc[0] != -1)
+                    {
+                        out.endArray();
+                        out.endObject();
+                    }
+                    currentNpc[0] = npcId;
+                    beginNpc(out, npcId);
+                }
+
+                out.beginArray();
+                out.value(LocationSet.getX(location));
+                out.value(LocationSet.getY(location));
+                out.value(LocationSet.getPlane(location));
+                out.endArray();
+            });
+            if (currentNpc[0] != -1)
+            {
+                out.endArray();
+                out.endObject();
+            }
+            out.endObject();
+            return written;
+        }
+    }
+
+    /*
+     * Merges everything added and passes each distinct (NPC ID, tile) pair to
+     * observer with its earliest tick, in order of NPC ID then tile. Returns
+     * the number of pairs passed.
+     */
+    long merge(NpcObservationLog.Observer observer) throws IOException
+    {
+        if (runSize > 0)
+        {
+            writeRun();
+        }
+
+        // Merge the oldest runs into one until a single pass can take the rest
+        while (runs.size() > MAX_FAN_IN)
+        {
+            List<File> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            runs.subList(0, MAX_FAN_IN).clear();
+            File runFile = newRunFile();
+            // Listed first, so close() deletes it even if the merge fails
+            runs.add(runFile);
+            try (DataOutputStream out = openRun(runFile))
+            {
+                mergeRuns(group, (npcId, location, tick) ->
+                {
+                    out.writeLong((long) npcId << 32 | location);
+                    out.writeInt(tick);
+                });
+            }
+            finally
+            {
+                for (File merged : group)
+                {
+                    merged.delete();
+                }
+            }
+        }
+        return mergeRuns(runs, observer);
+    }
+
+    /*
+     * Merges the run files, passing each distinct pair to observer with its earliest tick
+     */
+    private static long mergeRuns(List<File> runs, NpcObservationLog.Observer observer) throws IOException
+    {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) ->
+        {
+            int c = Long.compare(a.current, b.current);
+            return c != 0 ? c : Integer.compare(a.tick, b.tick);
+        });
+        // Every reader opened, so a failure part way through leaves no run file open
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        try
+        {
+            for (File runFile : runs)
+            {
+                RunReader reader = new RunReader(runFile);
+                readers.add(reader);
+                if (reader.next())
+                {
+                    queue.add(reader);
+                }
+            }
+
+            long written = 0;
+            long previous = -1;
+            while (!queue.isEmpty())
+            {
+                RunReader reader = queue.poll();
+                long pair = reader.current;
+                int tick = reader.tick;
+                if (reader.next())
+                {
+                    queue.add(reader);
+                }
+                if (pair == previous)
+                {
+                    continue;
+                }
+                previous = pair;
+
+                observer.accept((int) (pair >>> 32), (int) pair, tick);
+                written++;
+            }
+            return written;
+        }
+        finally
+        {
+            for (RunReader reader : readers)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException e)
+                {
+                    log.warn("Failed to close merge run", e);
+                }
+            }
+        }
+    }
+
+    private void beginNpc(JsonWriter out, int npcId) throws IOException
+    {
+        NpcLocation npc = npcs.get(npcId);
+        out.name(Integer.toString(npcId));
+        out.beginObject();
+        out.name("npcID").value(npcId);
+        if (npc != null && npc.getNpcName() != null)
+        {
+            out.name("npcName").value(npc.getNpcName());
+        }
+        out.name("npcCombatLevel").value(npc != null ? npc.getNpcCombatLevel() : 0);
+        out.name("npcWorldLocations");
+        out.beginArray();
+    }
+
+    /*
+     * Deletes the run files
+     */
+    @Override
+    public void close()
+    {
+        for (File runFile : runs)
+        {
+            runFile.delete();
+        }
+        tempDirectory.delete();
+    }
+}
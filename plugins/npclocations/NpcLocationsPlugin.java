@@ -24,26 +24,32 @@
  */
 package net.runelite.client.plugins.npclocations;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Provides;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.List;
-import java.io.FileWriter;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import lombok.extern.slf4j.Slf4j;
 import javax.inject.Inject;
+import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
+import net.runelite.api.GameState;
 import net.runelite.api.NPC;
-import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.Player;
 import net.runelite.api.events.CommandExecuted;
+import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
+import net.runelite.api.events.NpcDespawned;
+import net.runelite.api.events.NpcSpawned;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
+import net.runelite.client.plugins.dumputils.OutputCompression;
 import net.runelite.client.game.ItemManager;
 
 @Slf4j
@@ -56,11 +62,23 @@ import net.runelite.client.game.ItemManager;
 
 public class NpcLocationsPlugin extends Plugin
 {
-    private final Map<Integer, NpcLocation> npcs = new HashMap<>();
+    private final NpcSpatialIndex index = new NpcSpatialIndex();
+    private final SeenTiles seen = new SeenTiles();
+    private final NpcSpawnAreas spawnAreas = new NpcSpawnAreas();
+    private final NpcTracker tracker = new NpcTracker(this::recordMove);
+    private final InstanceTemplates instanceTemplates = new InstanceTemplates();
+    private NpcObservationLog observations;
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("npc-locations-export")
+            .setDaemon(true)
+            .build());
 
     @Inject
     private Client client;
 
+    @Inject
+    private ClientThread clientThread;
+
     @Inject
     private NpcLocationsConfig config;
 
@@ -77,18 +95,45 @@ public class NpcLocationsPlugin extends Plugin
     protected void startUp() throws Exception
     {
         log.debug(">>> Starting up NpcLocationsPlugin...");
+        File observationsFile = new File("npcs-observations.log");
+        observations = new NpcObservationLog(observationsFile);
+
+        // Tiles logged by earlier sessions are not new, whatever is in memory,
+        // and are already in the spawn areas
+        NpcObservationLog.read(observationsFile, (npcId, location, tick) ->
+        {
+            if (seen.add(npcId, location))
+            {
+                spawnAreas.add(npcId, location);
+            }
+        });
+
+        // NPCs spawned before the plugin was enabled get no NpcSpawned event
+        clientThread.invokeLater(() ->
+        {
+            instanceTemplates.load(client);
+            for (NPC npc : client.getNpcs())
+            {
+                tracker.spawned(npc);
+            }
+        });
     }
 
     @Override
     protected void shutDown() throws Exception
     {
         log.debug(">>> Shutting down NpcLocationsPlugin...");
-        npcs.clear();
+        observations.close();
+        tracker.clear();
+        index.clear();
+        seen.clear();
+        spawnAreas.clear();
     }
 
     @Subscribe
     public void onCommandExecuted(CommandExecuted commandExecuted)
     {
+        String[] arguments = commandExecuted.getArguments();
         switch (commandExecuted.getCommand())
         {
             case "dumpnpcs":
@@ -96,6 +141,47 @@ public class NpcLocationsPlugin extends Plugin
                 dumpsNpcs();
                 break;
             }
+            case "npcregion":
+            {
+                // ::npcregion [regionId], the region the player is in by default
+                if (arguments.length > 0)
+                {
+                    Integer regionId = parseId(arguments[0], "::npcregion [regionId]");
+                    if (regionId != null)
+                    {
+                        showRegion(regionId);
+                    }
+                }
+                else
+                {
+                    // No player on the login screen
+                    Player player = client.getLocalPlayer();
+                    if (player != null)
+                    {
+                        showRegion(player.getWorldLocation().getRegionID());
+                    }
+                }
+                break;
+            }
+            case "mergenpcs":
+            {
+                // ::mergenpcs <file> [file...], dumps or observation logs
+                if (arguments.length > 0)
+                {
+                    mergeNpcs(arguments);
+                }
+                break;
+            }
+            case "npcwhere":
+            {
+                // ::npcwhere <npcId>
+                Integer npcId = parseId(arguments.length > 0 ? arguments[0] : "", "::npcwhere <npcId>");
+                if (npcId != null)
+                {
+                    showNpc(npcId);
+                }
+                break;
+            }
         }
     }
 
@@ -104,81 +190,187 @@ public class NpcLocationsPlugin extends Plugin
     {
         if (config.scrapeNpcLocation())
         {
-            for (NPC npc : client.getNpcs())
+            // Only NPCs that moved since the last tick are recorded
+            int tick = client.getTickCount();
+            tracker.update(tick);
+            observations.tick(tick);
+
+            // Every sighting is in the log and new tiles are found by seen, so
+            // memory can be given back at any time
+            if (index.getTileCount() > config.maxTilesInMemory())
             {
-                // Return null NPCs
-                if (npc == null || npc.getName() == null)
-                {
-                    return;
-                }
+                log.debug(">>> Clearing {} NPC tiles from memory", index.getTileCount());
+                index.clear();
+            }
+        }
+    }
 
-                // Get the NPC index
-                int npcIndex = npc.getIndex();
+    private void recordMove(NPC npc, int location, int tick)
+    {
+        // Inside instances, record the tile of the template area instead
+        int templateLocation = instanceTemplates.translate(location);
 
-                // If the NPC is known, append location
-                // Else, create NPC
-                if (npcs.containsKey(npcIndex))
-                {
-                    NpcLocation npcLocation = npcs.get(npcIndex);
-                    List<Integer> location = determineCoordinates(npc);
+        // Only tiles never seen before are written to the observation log
+        if (seen.add(npc.getId(), templateLocation))
+        {
+            observations.append(npc, templateLocation, tick);
+            spawnAreas.add(npc.getId(), templateLocation);
+        }
+        index.add(npc, templateLocation);
+    }
 
-                    boolean saved = false;
-                    for (List meow : npcLocation.npcWorldLocations)
-                    {
-                        if (location.equals(meow))
-                        {
-                            saved = true;
-                            break;
-                        }
-                    }
-                    if (!saved)
-                    {
-                        log.debug(">>> Adding NPC: " + npc.getName());
-                        npcLocation.npcWorldLocations.add(location);
-                    }
-                }
-                else
-                {
-                    log.debug(">>> Adding NPC: " + npc.getName());
-                    NpcLocation npcLocation = new NpcLocation(npc);
-                    npcs.putIfAbsent(npcIndex, npcLocation);
-                    List<Integer> location = determineCoordinates(npc);
-                    npcLocation.npcWorldLocations.add(location);
-                }
-            }
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged gameStateChanged)
+    {
+        // The instance layout only changes when a scene is loaded
+        if (gameStateChanged.getGameState() == GameState.LOGGED_IN)
+        {
+            instanceTemplates.load(client);
         }
     }
 
-    private List<Integer> determineCoordinates(NPC npc)
+    @Subscribe
+    public void onNpcSpawned(NpcSpawned npcSpawned)
+    {
+        tracker.spawned(npcSpawned.getNpc());
+    }
+
+    @Subscribe
+    public void onNpcDespawned(NpcDespawned npcDespawned)
     {
-        WorldPoint wp = npc.getWorldLocation();
-        int x = wp.getX();
-        int y = wp.getY();
-        int p = wp.getPlane();
-        List<Integer> location = new ArrayList<>();
-        location.add(x);
-        location.add(y);
-        location.add(p);
-        return location;
+        tracker.despawned(npcDespawned.getNpc());
     }
 
     private void dumpsNpcs()
     {
         log.debug(">>> dumpsNpcs...");
 
-        // Initialize Gson builder, then generate JSON
-        Gson gson = new GsonBuilder().create();
-        String json = gson.toJson(npcs);
+        // The JSON and the heatmap are rebuilt from the observation log, which
+        // has every sighting. The log is compacted on its writer thread and the JSON
+        // written from a copy of it on the export thread, one NPC at a time.
+        // The spawn areas are copied here, so they match the log as compacted
+        OutputCompression compression = config.outputCompression();
+        int compressionLevel = config.compressionLevel();
+        NpcSpawnAreas areas = spawnAreas.copy();
+        observations.compact(snapshot -> exportExecutor.execute(() -> writeNpcs(snapshot, compression, compressionLevel, areas)));
+    }
 
-        // Save items_metadata.json file will all item metadata
-        String summaryFileOut = "npcs-locations.json";
-        try (FileWriter fw = new FileWriter(summaryFileOut))
+    private void writeNpcs(File snapshot, OutputCompression compression, int compressionLevel, NpcSpawnAreas areas)
+    {
+        NpcLocationsExport export = new NpcLocationsExport(compression, compressionLevel, areas);
+        try
         {
-            fw.write(json);
+            export.write(snapshot);
+            String message = "Dumped " + export.getTileCount() + " NPC tiles to " + export.getLocationsFile();
+            clientThread.invokeLater(() -> sendMessage(message));
         }
-        catch (IOException e)
+        catch (IOException | RuntimeException e)
         {
-            e.printStackTrace();
+            log.warn("Failed to dump NPC locations", e);
         }
+        finally
+        {
+            NpcObservationLog.npcsFile(snapshot).delete();
+            snapshot.delete();
+        }
+    }
+
+    private void mergeNpcs(String[] fileNames)
+    {
+        OutputCompression compression = config.outputCompression();
+        int compressionLevel = config.compressionLevel();
+        File mergedFileOut = new File(compression.apply("npcs-locations-merged.json"));
+        sendMessage("Merging " + fileNames.length + " NPC location files...");
+
+        // Runs off the client thread, the inputs can be far larger than memory
+        exportExecutor.execute(() ->
+        {
+            String message;
+            long start = System.currentTimeMillis();
+            try (NpcLocationsMerger merger = new NpcLocationsMerger())
+            {
+                for (String fileName : fileNames)
+                {
+                    merger.add(new File(fileName));
+                }
+                long written = merger.writeTo(mergedFileOut, compression, compressionLevel);
+                message = String.format("Merged %d NPC tiles into %d in %.1fs, saved to %s",
+                        merger.getPairsRead(), written, (System.currentTimeMillis() - start) / 1000.0, mergedFileOut);
+            }
+            catch (IOException | RuntimeException e)
+            {
+                log.warn("Failed to merge NPC locations", e);
+                message = "Failed to merge NPC locations: " + e.getMessage();
+            }
+
+            final String result = message;
+            clientThread.invokeLater(() -> sendMessage(result));
+        });
+    }
+
+    /*
+     * Returns argument as an ID, or null after showing usage if it is not a number
+     */
+    private Integer parseId(String argument, String usage)
+    {
+        try
+        {
+            return Integer.parseInt(argument);
+        }
+        catch (NumberFormatException e)
+        {
+            sendMessage("Usage: " + usage);
+            return null;
+        }
+    }
+
+    private void showRegion(int regionId)
+    {
+        NpcSpatialIndex.Region region = index.getRegion(regionId);
+        if (region == null)
+        {
+            sendMessage("No NPCs seen in region " + regionId + partialNote());
+            return;
+        }
+
+        StringJoiner npcs = new StringJoiner(", ", "Region " + regionId + ": ", "");
+        for (int npcId : region.getNpcIds())
+        {
+            npcs.add(index.get(npcId).getNpcName() + " (" + npcId + ")");
+        }
+        sendMessage(npcs + partialNote());
+    }
+
+    private void showNpc(int npcId)
+    {
+        NpcLocation npcLocation = index.get(npcId);
+        if (npcLocation == null)
+        {
+            sendMessage("NPC " + npcId + " has not been seen" + partialNote());
+            return;
+        }
+
+        Set<Integer> regionIds = index.getRegionIds(npcId);
+        sendMessage(npcLocation.getNpcName() + " (" + npcId + "): " + npcLocation.getNpcWorldLocations().size()
+                + " tiles in regions " + regionIds + partialNote());
+    }
+
+    /*
+     * Returns a note for answers from the index when it holds only some of
+     * the tiles seen, after being cleared or since earlier sessions
+     */
+    private String partialNote()
+    {
+        if (index.getTileCount() >= seen.getTileCount())
+        {
+            return "";
+        }
+        return " (from the " + index.getTileCount() + " of " + seen.getTileCount()
+                + " tiles in memory, ::dumpnpcs writes them all)";
+    }
+
+    private void sendMessage(String message)
+    {
+        client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", message, null);
     }
 }
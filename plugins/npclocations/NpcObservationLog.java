@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.NPC;
+
+/*
+ * Append-only log of NPC sightings, so nothing is lost if the client closes
+ * and memory does not have to hold every sighting of a long session. Each
+ * record is the NPC ID, packed tile and game tick, as three ints. Records are
+ * collected into a batch on the client thread and written by a background
+ * thread, and the log is forced to disk every CHECKPOINT_INTERVAL ticks. The
+ * name and combat level of each NPC ID are kept in a small text file next to
+ * the log, one line per ID.
+ */
+@Slf4j
+class NpcObservationLog
+{
+    interface Observer
+    {
+        void accept(int npcId, int location, int tick) throws IOException;
+    }
+
+    private static final int MAGIC = 0x4f534e4c; // "OSNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 12;
+    private static final int BATCH_RECORDS = 4096;
+    private static final int CHECKPOINT_INTERVAL = 100;
+
+    private final File file;
+    private final File npcsFile;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("npc-observations-writer")
+            .setDaemon(true)
+            .build());
+
+    // Only used on the writer thread
+    private FileChannel channel;
+
+    // Only used on the client thread
+    private final BitSet knownNpcs;
+    private ByteBuffer batch = newBatch();
+    private int lastCheckpoint;
+
+    /*
+     * Opens the log in file, or starts a new one if it is missing or unreadable.
+     * A partly written record at the end, left by a crash, is dropped.
+     */
+    NpcObservationLog(File file) throws IOException
+    {
+        this.file = file;
+        this.npcsFile = npcsFile(file);
+        this.channel = open(file);
+        this.knownNpcs = new BitSet();
+        for (int npcId : readNpcs(npcsFile).keySet())
+        {
+            knownNpcs.set(npcId);
+        }
+    }
+
+    private static FileChannel open(File file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION)
+        {
+            if (channel.size() > 0)
+            {
+                log.warn("Starting a new observation log, {} is not one", file);
+            }
+            channel.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+        }
+
+        long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    /*
+     * Adds a sighting to the current batch, from the client thread
+     */
+    void append(NPC npc, int location, int tick)
+    {
+        int npcId = npc.getId();
+        if (!knownNpcs.get(npcId))
+        {
+            knownNpcs.set(npcId);
+            String line = npcId + "\t" + npc.getCombatLevel() + "\t" + npc.getName() + "\n";
+            writer.execute(() -> appendNpc(line));
+        }
+
+        batch.putInt(npcId).putInt(location).putInt(tick);
+        if (!batch.hasRemaining())
+        {
+            writeBatch();
+        }
+    }
+
+    /*
+     * Called once per tick from the client thread, writes the batch and forces
+     * the log to disk every CHECKPOINT_INTERVAL ticks
+     */
+    void tick(int tick)
+    {
+        if (tick - lastCheckpoint >= CHECKPOINT_INTERVAL)
+        {
+            lastCheckpoint = tick;
+            writeBatch();
+            writer.execute(this::checkpoint);
+        }
+    }
+
+    /*
+     * Writes everything logged so far, then rewrites the log on the writer
+     * thread keeping only the earliest sighting of each NPC on each tile,
+     * sorted by NPC ID and tile. A copy of the compacted log and its NPC file
+     * is passed to onCompacted, which owns it from then on, so it should hand
+     * the copy to another thread rather than hold up the log.
+     */
+    void compact(Consumer<File> onCompacted)
+    {
+        writeBatch();
+        writer.execute(() ->
+        {
+            try
+            {
+                onCompacted.accept(rewrite());
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to compact {}", file, e);
+            }
+        });
+    }
+
+    /*
+     * Writes the batch and closes the log. Waits for the writer thread, so a
+     * log opened on the same file afterwards starts after the last record.
+     */
+    void close() throws InterruptedException
+    {
+        writeBatch();
+        writer.execute(() ->
+        {
+            try
+            {
+                channel.force(false);
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to close {}", file, e);
+            }
+        });
+        writer.shutdown();
+        if (!writer.awaitTermination(10, TimeUnit.SECONDS))
+        {
+            log.warn("Timed out closing {}", file);
+        }
+    }
+
+    private void writeBatch()
+    {
+        if (batch.position() == 0)
+        {
+            return;
+        }
+
+        final ByteBuffer full = batch;
+        full.flip();
+        batch = newBatch();
+        writer.execute(() ->
+        {
+            try
+            {
+                while (full.hasRemaining())
+                {
+                    channel.write(full);
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to write to {}", file, e);
+            }
+        });
+    }
+
+    private void checkpoint()
+    {
+        try
+        {
+            channel.force(false);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to checkpoint {}", file, e);
+        }
+    }
+
+    private void appendNpc(String line)
+    {
+        try (Writer fw = new FileWriter(npcsFile, true))
+        {
+            fw.write(line);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to write to {}", npcsFile, e);
+        }
+    }
+
+    /*
+     * Rewrites the log with an external merge, so compacting needs no more
+     * memory than a merge run however long the log is, and returns a copy of it
+     */
+    private File rewrite() throws IOException
+    {
+        File tempFile = new File(file.getPath() + ".tmp");
+        long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        channel.force(false);
+
+        long written;
+        try (NpcLocationsMerger merger = new NpcLocationsMerger();
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+        {
+            merger.add(file);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            written = merger.merge((npcId, location, tick) ->
+            {
+                out.writeInt(npcId);
+                out.writeInt(location);
+                out.writeInt(tick);
+            });
+        }
+
+        channel.close();
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(file);
+
+        File snapshot = File.createTempFile("npcs-observations-", ".log");
+        Files.copy(file.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (npcsFile.exists())
+        {
+            Files.copy(npcsFile.toPath(), npcsFile(snapshot).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.info("Compacted {} observations to {}", records, written);
+        return snapshot;
+    }
+
+    /*
+     * Passes every record of a closed log to observer, in the order they were
+     * written, which is by NPC ID and tile for a compacted log
+     */
+    static void read(File file, Observer observer) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (file.length() < HEADER_SIZE || in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException(file + " is not an observation log");
+            }
+
+            long records = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+            for (long i = 0; i < records; i++)
+            {
+                observer.accept(in.readInt(), in.readInt(), in.readInt());
+            }
+        }
+    }
+
+    /*
+     * Returns the NPC file kept next to a log
+     */
+    static File npcsFile(File file)
+    {
+        String name = file.getName();
+        if (name.endsWith(".log"))
+        {
+            name = name.substring(0, name.length() - ".log".length());
+        }
+        return new File(file.getParentFile(), name + "-npcs.tsv");
+    }
+
+    /*
+     * Returns the lines of the NPC file split into ID, combat level and name, keyed by ID
+     */
+    static Map<Integer, String[]> readNpcs(File npcsFile) throws IOException
+    {
+        Map<Integer, String[]> npcs = new HashMap<>();
+        if (!npcsFile.exists())
+        {
+            return npcs;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(npcsFile)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                String[] fields = line.split("\t", 3);
+                if (fields.length == 3)
+                {
+                    npcs.put(Integer.parseInt(fields[0]), fields);
+                }
+            }
+        }
+        return npcs;
+    }
+
+    private static ByteBuffer newBatch()
+    {
+        return ByteBuffer.allocate(BATCH_RECORDS * RECORD_SIZE);
+    }
+}
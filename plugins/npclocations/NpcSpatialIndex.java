@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.Getter;
+import net.runelite.api.NPC;
+
+/*
+ * NPC locations indexed two ways: by NPC ID, for where an NPC appears, and by
+ * 64x64 map region, for which NPCs appear in a region. Every NPC in a region
+ * also has a bit per 8x8 chunk and plane it was seen in, so the NPCs in one
+ * chunk are found without going through their locations.
+ */
+class NpcSpatialIndex
+{
+    /*
+     * The NPCs seen in one map region, and where in it
+     */
+    static class Region
+    {
+        @Getter
+        private final int regionId;
+        private final Map<Integer, RegionNpc> npcs = new LinkedHashMap<>();
+
+        private Region(int regionId)
+        {
+            this.regionId = regionId;
+        }
+
+        /*
+         * Returns the IDs of the NPCs seen in this region
+         */
+        Set<Integer> getNpcIds()
+        {
+            return Collections.unmodifiableSet(npcs.keySet());
+        }
+
+        /*
+         * Returns the locations in this region an NPC was seen at, or null if it was not
+         */
+        LocationSet getLocations(int npcId)
+        {
+            RegionNpc npc = npcs.get(npcId);
+            return npc != null ? npc.locations : null;
+        }
+
+        private void add(int npcId, int location)
+        {
+            RegionNpc npc = npcs.computeIfAbsent(npcId, id -> new RegionNpc());
+            npc.locations.add(location);
+            npc.chunks[LocationSet.getPlane(location)] |= 1L << chunkBit(location);
+        }
+    }
+
+    private static class RegionNpc
+    {
+        private final LocationSet locations = new LocationSet();
+        private final long[] chunks = new long[4];
+    }
+
+    /*
+     * Indexed by NPC ID, so the tick path does not box keys
+     */
+    private NpcLocation[] npcs = new NpcLocation[16384];
+    private final Map<Integer, Region> regions = new HashMap<>();
+    @Getter
+    private int tileCount;
+
+    static int regionId(int location)
+    {
+        return (LocationSet.getX(location) >> 6) << 8 | (LocationSet.getY(location) >> 6);
+    }
+
+    private static int chunkBit(int location)
+    {
+        return ((LocationSet.getX(location) >> 3) & 7) << 3 | ((LocationSet.getY(location) >> 3) & 7);
+    }
+
+    /*
+     * Records npc at a packed location, returns false if it was already seen there
+     */
+    boolean add(NPC npc, int location)
+    {
+        NpcLocation npcLocation = get(npc.getId());
+        return add(npcLocation != null ? npcLocation : new NpcLocation(npc), location);
+    }
+
+    /*
+     * Records an NPC read back from the observation log
+     */
+    boolean add(int npcId, String npcName, int npcCombatLevel, int location)
+    {
+        NpcLocation npcLocation = get(npcId);
+        return add(npcLocation != null ? npcLocation : new NpcLocation(npcId, npcName, npcCombatLevel), location);
+    }
+
+    private boolean add(NpcLocation npcLocation, int location)
+    {
+        int npcId = npcLocation.getNpcID();
+        if (npcId >= npcs.length)
+        {
+            npcs = Arrays.copyOf(npcs, Math.max(npcs.length * 2, npcId + 1));
+        }
+        if (npcs[npcId] == null)
+        {
+            npcs[npcId] = npcLocation;
+        }
+
+        if (!npcLocation.getNpcWorldLocations().add(location))
+        {
+            return false;
+        }
+        regions.computeIfAbsent(regionId(location), Region::new).add(npcId, location);
+        tileCount++;
+        return true;
+    }
+
+    /*
+     * Returns where an NPC has been seen, or null if it has not
+     */
+    NpcLocation get(int npcId)
+    {
+        return npcId >= 0 && npcId < npcs.length ? npcs[npcId] : null;
+    }
+
+    /*
+     * Returns the regions an NPC has been seen in, in ascending order
+     */
+    Set<Integer> getRegionIds(int npcId)
+    {
+        Set<Integer> regionIds = new TreeSet<>();
+        NpcLocation npcLocation = get(npcId);
+        if (npcLocation != null)
+        {
+            LocationSet locations = npcLocation.getNpcWorldLocations();
+            for (int i = 0; i < locations.size(); i++)
+            {
+                regionIds.add(regionId(locations.get(i)));
+            }
+        }
+        return regionIds;
+    }
+
+    /*
+     * Returns the region with the given ID, or null if no NPC has been seen in it
+     */
+    Region getRegion(int regionId)
+    {
+        return regions.get(regionId);
+    }
+
+    /*
+     * Returns the IDs of the NPCs seen in the 8x8 chunk containing a tile
+     */
+    List<Integer> getNpcIds(int x, int y, int plane)
+    {
+        int location = LocationSet.pack(x, y, plane);
+        Region region = regions.get(regionId(location));
+        if (region == null)
+        {
+            return Collections.emptyList();
+        }
+
+        long bit = 1L << chunkBit(location);
+        List<Integer> npcIds = new ArrayList<>();
+        for (Map.Entry<Integer, RegionNpc> entry : region.npcs.entrySet())
+        {
+            if ((entry.getValue().chunks[plane] & bit) != 0)
+            {
+                npcIds.add(entry.getKey());
+            }
+        }
+        return npcIds;
+    }
+
+    /*
+     * Returns every NPC seen, keyed by NPC ID
+     */
+    Map<Integer, NpcLocation> getNpcs()
+    {
+        Map<Integer, NpcLocation> npcsById = new HashMap<>();
+        for (int npcId = 0; npcId < npcs.length; npcId++)
+        {
+            if (npcs[npcId] != null)
+            {
+                npcsById.put(npcId, npcs[npcId]);
+            }
+        }
+        return npcsById;
+    }
+
+    Collection<Region> getRegions()
+    {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    void clear()
+    {
+        Arrays.fill(npcs, null);
+        regions.clear();
+        tileCount = 0;
+    }
+}
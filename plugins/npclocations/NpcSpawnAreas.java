@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import java.util.Arrays;
+
+/*
+ * The spawn areas of every NPC in the observation log, indexed by NPC ID.
+ * Filled from the log at startup and then updated with each new tile as it is
+ * seen, so ::dumpnpcs only has to write them out. They are a handful of
+ * rectangles per NPC, so unlike the tiles they are never dropped from memory.
+ */
+class NpcSpawnAreas
+{
+    private SpawnAreas[] spawnAreas = new SpawnAreas[16384];
+
+    /*
+     * Adds a packed location of an NPC, which must not have been added before
+     */
+    void add(int npcId, int location)
+    {
+        if (npcId >= spawnAreas.length)
+        {
+            spawnAreas = Arrays.copyOf(spawnAreas, Math.max(spawnAreas.length * 2, npcId + 1));
+        }
+        if (spawnAreas[npcId] == null)
+        {
+            spawnAreas[npcId] = new SpawnAreas();
+        }
+        spawnAreas[npcId].add(location);
+    }
+
+    /*
+     * Returns the spawn areas of an NPC, or null if it has not been seen
+     */
+    SpawnAreas get(int npcId)
+    {
+        return npcId >= 0 && npcId < spawnAreas.length ? spawnAreas[npcId] : null;
+    }
+
+    /*
+     * Returns a copy that can be exported on another thread
+     */
+    NpcSpawnAreas copy()
+    {
+        NpcSpawnAreas copy = new NpcSpawnAreas();
+        copy.spawnAreas = new SpawnAreas[spawnAreas.length];
+        for (int npcId = 0; npcId < spawnAreas.length; npcId++)
+        {
+            if (spawnAreas[npcId] != null)
+            {
+                copy.spawnAreas[npcId] = spawnAreas[npcId].copy();
+            }
+        }
+        return copy;
+    }
+
+    void clear()
+    {
+        Arrays.fill(spawnAreas, null);
+    }
+}
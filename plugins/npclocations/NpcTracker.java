@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import java.util.Arrays;
+import net.runelite.api.NPC;
+import net.runelite.api.coords.WorldPoint;
+
+/*
+ * The NPCs currently spawned, from NpcSpawned and NpcDespawned, with the tile
+ * each was last recorded on. Everything is held in arrays indexed by NPC
+ * index, plus a dense list of the spawned indexes, so a tick only does work
+ * for the NPCs that moved.
+ */
+class NpcTracker
+{
+    interface Listener
+    {
+        void moved(NPC npc, int location, int tick);
+    }
+
+    private static final int UNKNOWN = -1;
+
+    private final Listener listener;
+
+    private NPC[] npcs = new NPC[32768];
+    private int[] positions = new int[32768];
+    private int[] slots = new int[32768];
+    private int[] spawned = new int[256];
+    private int size;
+
+    NpcTracker(Listener listener)
+    {
+        this.listener = listener;
+    }
+
+    void spawned(NPC npc)
+    {
+        int npcIndex = npc.getIndex();
+        if (npcIndex >= npcs.length)
+        {
+            int length = Math.max(npcs.length * 2, npcIndex + 1);
+            npcs = Arrays.copyOf(npcs, length);
+            positions = Arrays.copyOf(positions, length);
+            slots = Arrays.copyOf(slots, length);
+        }
+
+        if (npcs[npcIndex] == null)
+        {
+            if (size == spawned.length)
+            {
+                spawned = Arrays.copyOf(spawned, size * 2);
+            }
+            slots[npcIndex] = size;
+            spawned[size++] = npcIndex;
+        }
+
+        // Recorded on the next update, even if it never moves
+        npcs[npcIndex] = npc;
+        positions[npcIndex] = UNKNOWN;
+    }
+
+    void despawned(NPC npc)
+    {
+        int npcIndex = npc.getIndex();
+        if (npcIndex >= npcs.length || npcs[npcIndex] != npc)
+        {
+            return;
+        }
+
+        // Moves the last spawned index into the freed slot
+        int slot = slots[npcIndex];
+        int last = spawned[--size];
+        spawned[slot] = last;
+        slots[last] = slot;
+        npcs[npcIndex] = null;
+    }
+
+    /*
+     * Passes every NPC whose tile changed since the last update to the
+     * listener, returns the number passed
+     */
+    int update(int tick)
+    {
+        int moved = 0;
+        for (int i = 0; i < size; i++)
+        {
+            int npcIndex = spawned[i];
+            NPC npc = npcs[npcIndex];
+            if (npc.getName() == null)
+            {
+                continue;
+            }
+
+            WorldPoint wp = npc.getWorldLocation();
+            int position = LocationSet.pack(wp.getX(), wp.getY(), wp.getPlane());
+            if (position != positions[npcIndex])
+            {
+                positions[npcIndex] = position;
+                listener.moved(npc, position, tick);
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    void clear()
+    {
+        Arrays.fill(npcs, null);
+        size = 0;
+    }
+}
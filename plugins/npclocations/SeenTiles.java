@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/*
+ * Every (NPC ID, tile) pair seen, as a bit per tile in a 64-bit word per NPC
+ * and 8x8 chunk of a plane, held in an open-addressing table. It decides which
+ * sightings are new, so the observation log only gets first sightings however
+ * much of the spatial index has been dropped from memory. A wandering NPC
+ * costs a little over a bit per tile, against the four bytes and more each
+ * tile takes in a LocationSet.
+ */
+class SeenTiles
+{
+    private static final long EMPTY = -1;
+
+    private long[] keys = newKeys(1024);
+    private long[] words = new long[1024];
+    private int size;
+    @Getter
+    private long tileCount;
+
+    /*
+     * Adds a packed location of an NPC, returns false if it was already seen there
+     */
+    boolean add(int npcId, int location)
+    {
+        int x = LocationSet.getX(location);
+        int y = LocationSet.getY(location);
+        long key = (long) npcId << 32 | LocationSet.getPlane(location) << 22 | (x >> 3) << 11 | (y >> 3);
+        long bit = 1L << ((x & 7) << 3 | (y & 7));
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        if (keys[slot] == EMPTY)
+        {
+            keys[slot] = key;
+            size++;
+        }
+        else if ((words[slot] & bit) != 0)
+        {
+            return false;
+        }
+        words[slot] |= bit;
+        tileCount++;
+
+        // Kept at most half full, so probe runs stay short
+        if (size * 2 > keys.length)
+        {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(words, 0);
+        size = 0;
+        tileCount = 0;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        long[] oldWords = words;
+        keys = newKeys(capacity);
+        words = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+            {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                words[slot] = oldWords[i];
+            }
+        }
+    }
+
+    private static int hash(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long[] newKeys(int capacity)
+    {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+}
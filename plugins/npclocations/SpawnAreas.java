@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2021, PH01L <phoil@osrsbox.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.runelite.client.plugins.npclocations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import lombok.Getter;
+
+/*
+ * An NPC's tiles grouped into spawn areas: rectangles on one plane, each with
+ * the number of distinct tiles the NPC was seen on inside it. A tile within
+ * GAP tiles of an area grows that area, and areas that grow to within GAP of
+ * each other are merged, so the areas are kept up to date one tile at a time
+ * and a wandering NPC ends up as a handful of rectangles instead of thousands
+ * of points.
+ */
+class SpawnAreas
+{
+    static final int GAP = 3;
+
+    static class Area
+    {
+        @Getter
+        private final int plane;
+        @Getter
+        private int minX;
+        @Getter
+        private int minY;
+        @Getter
+        private int maxX;
+        @Getter
+        private int maxY;
+        @Getter
+        private int tiles;
+
+        private Area(int plane, int x, int y)
+        {
+            this.plane = plane;
+            this.minX = x;
+            this.minY = y;
+            this.maxX = x;
+            this.maxY = y;
+            this.tiles = 1;
+        }
+
+        private Area(Area other)
+        {
+            this.plane = other.plane;
+            this.minX = other.minX;
+            this.minY = other.minY;
+            this.maxX = other.maxX;
+            this.maxY = other.maxY;
+            this.tiles = other.tiles;
+        }
+
+        private boolean isNear(int x, int y)
+        {
+            return x >= minX - GAP && x <= maxX + GAP && y >= minY - GAP && y <= maxY + GAP;
+        }
+
+        private boolean isNear(Area other)
+        {
+            return plane == other.plane
+                    && other.minX <= maxX + GAP && minX <= other.maxX + GAP
+                    && other.minY <= maxY + GAP && minY <= other.maxY + GAP;
+        }
+
+        private void include(int x, int y)
+        {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            tiles++;
+        }
+
+        private void merge(Area other)
+        {
+            minX = Math.min(minX, other.minX);
+            minY = Math.min(minY, other.minY);
+            maxX = Math.max(maxX, other.maxX);
+            maxY = Math.max(maxY, other.maxY);
+            tiles += other.tiles;
+        }
+    }
+
+    private final List<Area> areas = new ArrayList<>(1);
+
+    /*
+     * Adds a packed location, which must not have been added before
+     */
+    void add(int location)
+    {
+        int plane = LocationSet.getPlane(location);
+        int x = LocationSet.getX(location);
+        int y = LocationSet.getY(location);
+
+        Area grown = null;
+        for (Area area : areas)
+        {
+            if (area.getPlane() == plane && area.isNear(x, y))
+            {
+                area.include(x, y);
+                grown = area;
+                break;
+            }
+        }
+
+        if (grown == null)
+        {
+            areas.add(new Area(plane, x, y));
+            return;
+        }
+
+        // A grown area can reach others, and merging those can reach more
+        boolean merged = true;
+        while (merged)
+        {
+            merged = false;
+            Iterator<Area> it = areas.iterator();
+            while (it.hasNext())
+            {
+                Area area = it.next();
+                if (area != grown && grown.isNear(area))
+                {
+                    grown.merge(area);
+                    it.remove();
+                    merged = true;
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns a copy that can be exported on another thread
+     */
+    SpawnAreas copy()
+    {
+        SpawnAreas copy = new SpawnAreas();
+        for (Area area : areas)
+        {
+            copy.areas.add(new Area(area));
+        }
+        return copy;
+    }
+
+    List<Area> getAreas()
+    {
+        return Collections.unmodifiableList(areas);
+    }
+}
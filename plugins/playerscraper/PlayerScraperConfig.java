@@ -27,6 +27,7 @@ package net.runelite.client.plugins.playerscraper;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.plugins.dumputils.OutputCompression;
 
 @ConfigGroup("playerscraper")
 public interface PlayerScraperConfig extends Config
@@ -52,4 +53,26 @@ public interface PlayerScraperConfig extends Config
     {
         return true;
     }
+
+    @ConfigItem(
+            position = 3,
+            keyName = "outputCompression",
+            name = "Output compression",
+            description = "Compress player files while they are written, with a .sha256 checksum"
+    )
+    default OutputCompression outputCompression()
+    {
+        return OutputCompression.NONE;
+    }
+
+    @ConfigItem(
+            position = 4,
+            keyName = "compressionLevel",
+            name = "Compression level",
+            description = "Deflate level, from 1 (fastest) to 9 (smallest)"
+    )
+    default int compressionLevel()
+    {
+        return 6;
+    }
 }
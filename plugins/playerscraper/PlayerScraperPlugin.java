@@ -32,7 +32,7 @@ import com.google.common.collect.ObjectArrays;
 import java.util.*;
 import java.util.Objects;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.Writer;
 import java.io.IOException;
 import javax.annotation.Nullable;
 import java.util.regex.Pattern;
@@ -52,6 +52,7 @@ import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.menus.MenuManager;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
+import net.runelite.client.plugins.dumputils.DumpOutputStream;
 import net.runelite.client.ui.ClientToolbar;
 import net.runelite.client.util.Text;
 import org.apache.commons.lang3.ArrayUtils;
@@ -249,15 +250,14 @@ public class PlayerScraperPlugin extends Plugin
         File dir = new File(directory);
         if (!dir.exists()) dir.mkdirs();
 
-        // Initialize Gson builder, then generate JSON
+        // Initialize Gson builder
         Gson gson = new GsonBuilder().create();
-        String json = gson.toJson(targetPlayer);
 
-        // Save items_metadata.json file will all item metadata
-        String summaryFileOut = targetPlayer.name + ".json";
-        try (FileWriter fw = new FileWriter(summaryFileOut))
+        // Stream the JSON into the player file, compressing it on the way if enabled
+        File summaryFileOut = new File(config.outputCompression().apply(targetPlayer.name + ".json"));
+        try (Writer fw = DumpOutputStream.openWriter(summaryFileOut, config.outputCompression(), config.compressionLevel()))
         {
-            fw.write(json);
+            gson.toJson(targetPlayer, fw);
         }
         catch (IOException e)
         {